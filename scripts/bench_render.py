@@ -0,0 +1,75 @@
+#!/usr/bin/env python3
+"""Measure books-table render time per page against a running app.
+
+Logs in, then walks /books?page=0..N-1 several times. After every pass it reads the
+books.rows.render timer and the bookRows cache counters from /actuator/metrics, so
+the first (cold) pass can be compared with the warm ones. Run it once as is and once
+with app.books.row-cache.max-size=0 to see the cost without the fragment cache.
+"""
+import argparse, re, statistics, time
+from typing import Dict, List
+import requests
+
+def login(base: str, email: str, password: str) -> requests.Session:
+    s = requests.Session()
+    page = s.get(f"{base}/login", timeout=20)
+    page.raise_for_status()
+    m = re.search(r'name="_csrf"\s+value="([^"]+)"', page.text) or re.search(r'value="([^"]+)"\s+name="_csrf"', page.text)
+    data = {"username": email, "password": password}
+    if m:
+        data["_csrf"] = m.group(1)
+    r = s.post(f"{base}/login", data=data, timeout=20, allow_redirects=False)
+    if r.status_code not in (302, 303) or "error" in r.headers.get("Location", ""):
+        raise SystemExit(f"login failed for {email}")
+    return s
+
+def metric(s: requests.Session, base: str, name: str, **tags) -> Dict[str, float]:
+    params = [("tag", f"{k}:{v}") for k, v in tags.items()]
+    r = s.get(f"{base}/actuator/metrics/{name}", params=params, timeout=20)
+    if r.status_code == 404:
+        return {}
+    r.raise_for_status()
+    return {m["statistic"]: m["value"] for m in r.json()["measurements"]}
+
+def render_stats(s: requests.Session, base: str) -> Dict[str, float]:
+    t = metric(s, base, "books.rows.render")
+    return {
+        "count": t.get("COUNT", 0.0),
+        "seconds": t.get("TOTAL_TIME", 0.0),
+        "hits": metric(s, base, "cache.gets", cache="bookRows", result="hit").get("COUNT", 0.0),
+        "misses": metric(s, base, "cache.gets", cache="bookRows", result="miss").get("COUNT", 0.0),
+    }
+
+def walk(s: requests.Session, base: str, pages: int) -> List[float]:
+    timings = []
+    for p in range(pages):
+        t0 = time.perf_counter()
+        r = s.get(f"{base}/books", params={"page": p}, timeout=60)
+        r.raise_for_status()
+        timings.append((time.perf_counter() - t0) * 1000)
+    return timings
+
+def main():
+    ap = argparse.ArgumentParser(description="Benchmark rendering of the /books table.")
+    ap.add_argument("--base-url", default="http://localhost:8080")
+    ap.add_argument("--email", default="admin@line.com")
+    ap.add_argument("--password", default="line")
+    ap.add_argument("--pages", type=int, default=50, help="Browse pages walked per pass.")
+    ap.add_argument("--rounds", type=int, default=3, help="Passes; the first one renders every row.")
+    args = ap.parse_args()
+
+    s = login(args.base_url, args.email, args.password)
+    before = render_stats(s, args.base_url)
+    for i in range(args.rounds):
+        timings = sorted(walk(s, args.base_url, args.pages))
+        after = render_stats(s, args.base_url)
+        renders = after["count"] - before["count"]
+        render_ms = (after["seconds"] - before["seconds"]) * 1000 / renders if renders else float("nan")
+        hits, misses = after["hits"] - before["hits"], after["misses"] - before["misses"]
+        p95 = timings[min(len(timings) - 1, int(len(timings) * 0.95))]
+        print(f"pass {i + 1}: rows render {render_ms:6.2f} ms/page  row hits {hits:5.0f} misses {misses:5.0f}  "
+              f"request p50 {statistics.median(timings):7.2f} ms  p95 {p95:7.2f} ms")
+        before = after
+
+if __name__ == "__main__":
+    main()
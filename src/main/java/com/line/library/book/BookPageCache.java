@@ -0,0 +1,146 @@
+package com.line.library.book;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Caches the unfiltered browse pages (newest first) as immutable
+ * {@link BookSummary} snapshots, bounded by approximate heap weight.
+ *
+ * An edit drops only the pages whose id range covers the book. An insert
+ * gets the highest id, so it shifts every page by one row: the contiguous
+ * run of cached pages from page 0 is rewritten in place (each page takes
+ * the last row of the one before it) and the rest of that page size is
+ * dropped. Hit/miss counters are published as cache.gets{cache=booksPages}.
+ */
+@Component
+public class BookPageCache {
+
+    private final Cache<Key, Snapshot> cache;
+    // Bumped on every invalidation so a load that raced with a write is not stored
+    private long writes;
+
+    public BookPageCache(MeterRegistry meterRegistry,
+                         @Value("${app.browse.cache.max-weight:8388608}") long maxWeight) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeight)
+                .weigher((Key k, Snapshot s) -> s.weight())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "booksPages");
+    }
+
+    public Page<BookSummary> get(int page, int size, Supplier<Page<Book>> loader) {
+        Key key = new Key(page, size);
+        Snapshot snapshot = cache.getIfPresent(key);
+        if (snapshot == null) {
+            long seen;
+            synchronized (this) {
+                seen = writes;
+            }
+            snapshot = Snapshot.of(loader.get());
+            synchronized (this) {
+                if (writes == seen) {
+                    cache.put(key, snapshot);
+                }
+            }
+        }
+        return snapshot.toPage(page, size);
+    }
+
+    public synchronized void onBookUpdated(Book book) {
+        writes++;
+        long id = book.getId();
+        cache.asMap().entrySet().removeIf(e -> e.getValue().covers(id));
+    }
+
+    public synchronized void onBookInserted(Book book) {
+        writes++;
+        BookSummary inserted = BookSummary.of(book);
+        Map<Key, Snapshot> map = cache.asMap();
+        List<Key> keys = new ArrayList<>(map.keySet());
+        keys.sort((a, b) -> a.size != b.size ? Integer.compare(a.size, b.size) : Integer.compare(a.page, b.page));
+        // Row carried from the previous page into the next one; null once the chain is broken
+        BookSummary carry = null;
+        int chainSize = -1;
+        int expectedPage = 0;
+        for (Key key : keys) {
+            if (key.size != chainSize) {
+                chainSize = key.size;
+                expectedPage = 0;
+                carry = inserted;
+            }
+            Snapshot old = map.get(key);
+            if (old == null) {
+                continue;
+            }
+            boolean inChain = carry != null && key.page == expectedPage
+                    && (old.rows.isEmpty() || old.rows.get(0).id() < inserted.id());
+            if (!inChain) {
+                map.remove(key);
+                carry = null;
+                continue;
+            }
+            map.put(key, old.shiftIn(carry, key.size));
+            carry = old.rows.size() == key.size ? old.rows.get(key.size - 1) : null;
+            expectedPage++;
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        writes++;
+        cache.invalidateAll();
+    }
+
+    private record Key(int page, int size) { }
+
+    private record Snapshot(List<BookSummary> rows, long total, int weight) {
+
+        static Snapshot of(Page<Book> page) {
+            return of(page.getContent().stream().map(BookSummary::of).toList(), page.getTotalElements());
+        }
+
+        static Snapshot of(List<BookSummary> rows, long total) {
+            int weight = 64;
+            for (BookSummary b : rows) {
+                weight += 64 + 2 * (length(b.title()) + length(b.author()));
+            }
+            return new Snapshot(List.copyOf(rows), total, weight);
+        }
+
+        // Rows are newest first, so the page holds exactly the ids between its last and first row
+        boolean covers(long id) {
+            return !rows.isEmpty() && id <= rows.get(0).id() && id >= rows.get(rows.size() - 1).id();
+        }
+
+        Snapshot shiftIn(BookSummary first, int size) {
+            List<BookSummary> next = new ArrayList<>(size);
+            next.add(first);
+            next.addAll(rows.subList(0, Math.min(rows.size(), size - 1)));
+            return of(next, total + 1);
+        }
+
+        Page<BookSummary> toPage(int page, int size) {
+            return new PageImpl<>(rows, PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "id")), total);
+        }
+
+        private static int length(String s) {
+            return s == null ? 0 : s.length();
+        }
+    }
+}
@@ -1,15 +1,67 @@
 package com.line.library.book;
 
 import java.util.List;
-import org.springframework.cache.annotation.Cacheable;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import jakarta.persistence.QueryHint;
+
 public interface BookRepository extends JpaRepository<Book, Long> {
+
+  // Shared predicates for the search queries below (:q, :pubYear, :availableAt)
+  String TRIGRAM_MATCH = """
+      length(:q) >= 3
+        and b.search_text ilike ('%' || immutable_unaccent(lower(:q)) || '%')
+      """;
+  // Typo fallback is <% (word_similarity): the query against its best-matching stretch of search_text,
+  // so one misspelled word of a long title still clears the threshold; % would compare the whole text
+  String HYBRID_MATCH = """
+      length(:q) >= 3
+        and (b.search_tsv @@ websearch_to_tsquery('simple', immutable_unaccent(lower(:q)))
+             or immutable_unaccent(lower(:q)) <% b.search_text)
+      """;
+  // CJK path: containment on the cjk_bigrams(search_text) GIN index, then a substring recheck for adjacency
+  String CJK_MATCH = """
+      cardinality(cjk_bigrams(:q)) > 0
+        and cjk_bigrams(b.search_text) @> cjk_bigrams(immutable_unaccent(lower(:q)))
+        and b.search_text like ('%' || immutable_unaccent(lower(:q)) || '%')
+      """;
+  // Semi-join on the partial index idx_copies_avail_book_lib (book_id, library_id) WHERE current_loan_id IS NULL AND hold_id IS NULL
+  String FILTERS = """
+        and (:pubYear is null or b.pub_year = :pubYear)
+        and (:availableAt is null or exists (
+              select 1 from book_copies c
+              where c.book_id = b.id and c.library_id = :availableAt and c.current_loan_id is null and c.hold_id is null))
+      """;
+  String TRIGRAM_ORDER = """
+      order by similarity(b.search_text, immutable_unaccent(lower(:q))) desc,
+                b.id
+      """;
+  String HYBRID_ORDER = """
+      order by ts_rank_cd(b.search_tsv, websearch_to_tsquery('simple', immutable_unaccent(lower(:q)))) desc,
+                word_similarity(immutable_unaccent(lower(:q)), b.search_text) desc,
+                b.id
+      """;
+  // Every match contains all query bigrams, so fewer bigrams in the row means a larger share of it matched
+  String CJK_ORDER = """
+      order by cardinality(cjk_bigrams(b.search_text)),
+                b.id
+      """;
+  String FACET_SELECT = """
+      select (b.pub_year / 10) * 10 as decade, cast(b.type as text) as type, count(*) as books
+      from books b
+      where
+      """;
+
   @Query(value = """
       select b.*
       from books b
@@ -29,10 +81,155 @@ public interface BookRepository extends JpaRepository<Book, Long> {
       @Param("pubYear") Integer pubYear,
       Pageable pageable);
 
-  // Cache all-books pagination queries for 1 hour (configured via Caffeine)
-  @Cacheable(cacheNames = "booksAll")
-  Page<Book> findAll(Pageable pageable);
+  // Same ranking as searchFuzzyAnyPaged without the count query; callers may ask for one extra row to detect a next page
+  @Query(value = "select b.* from books b where " + TRIGRAM_MATCH + FILTERS + TRIGRAM_ORDER
+      + " limit :limit offset :offset", nativeQuery = true)
+  List<Book> searchFuzzyAnyWindow(@Param("q") String q,
+      @Param("pubYear") Integer pubYear,
+      @Param("availableAt") Long availableAt,
+      @Param("limit") int limit,
+      @Param("offset") long offset);
+
+  // Count that stops after :cap matching rows
+  @Query(value = "select count(*) from (select 1 from books b where " + TRIGRAM_MATCH + FILTERS
+      + " limit :cap) t", nativeQuery = true)
+  long countFuzzyAnyCapped(@Param("q") String q,
+      @Param("pubYear") Integer pubYear,
+      @Param("availableAt") Long availableAt,
+      @Param("cap") long cap);
+
+  // Decade/type buckets over the whole match set; they sum to the exact total, so this stands in for the count query
+  @Query(value = FACET_SELECT + TRIGRAM_MATCH + FILTERS + " group by 1, 2", nativeQuery = true)
+  List<FacetBucket> facetFuzzyAny(@Param("q") String q,
+      @Param("pubYear") Integer pubYear,
+      @Param("availableAt") Long availableAt);
+
+  interface FacetBucket {
+    Integer getDecade();
+    String getType();
+    long getBooks();
+  }
+
+  // Hybrid ranking: full-text match on search_tsv ranked by ts_rank_cd, plus trigram-similar rows for typos
+  @Query(value = "select b.* from books b where " + HYBRID_MATCH + FILTERS + HYBRID_ORDER
+      + " limit :limit offset :offset", nativeQuery = true)
+  List<Book> searchHybridWindow(@Param("q") String q,
+      @Param("pubYear") Integer pubYear,
+      @Param("availableAt") Long availableAt,
+      @Param("limit") int limit,
+      @Param("offset") long offset);
+
+  @Query(value = "select count(*) from (select 1 from books b where " + HYBRID_MATCH + FILTERS
+      + " limit :cap) t", nativeQuery = true)
+  long countHybridCapped(@Param("q") String q,
+      @Param("pubYear") Integer pubYear,
+      @Param("availableAt") Long availableAt,
+      @Param("cap") long cap);
+
+  @Query(value = FACET_SELECT + HYBRID_MATCH + FILTERS + " group by 1, 2", nativeQuery = true)
+  List<FacetBucket> facetHybrid(@Param("q") String q,
+      @Param("pubYear") Integer pubYear,
+      @Param("availableAt") Long availableAt);
+
+  // Routed here when the query contains CJK text (see SearchText.hasCjkBigram); works from two characters
+  @Query(value = "select b.* from books b where " + CJK_MATCH + FILTERS + CJK_ORDER
+      + " limit :limit offset :offset", nativeQuery = true)
+  List<Book> searchCjkWindow(@Param("q") String q,
+      @Param("pubYear") Integer pubYear,
+      @Param("availableAt") Long availableAt,
+      @Param("limit") int limit,
+      @Param("offset") long offset);
+
+  @Query(value = "select count(*) from (select 1 from books b where " + CJK_MATCH + FILTERS
+      + " limit :cap) t", nativeQuery = true)
+  long countCjkCapped(@Param("q") String q,
+      @Param("pubYear") Integer pubYear,
+      @Param("availableAt") Long availableAt,
+      @Param("cap") long cap);
+
+  @Query(value = FACET_SELECT + CJK_MATCH + FILTERS + " group by 1, 2", nativeQuery = true)
+  List<FacetBucket> facetCjk(@Param("q") String q,
+      @Param("pubYear") Integer pubYear,
+      @Param("availableAt") Long availableAt);
+
+  // Browse restricted to books with a free copy at one library (newest first)
+  @Query(value = """
+      select b.*
+      from books b
+      where exists (
+        select 1 from book_copies c
+        where c.book_id = b.id and c.library_id = :libraryId and c.current_loan_id is null and c.hold_id is null)
+      order by b.id desc
+      """, countQuery = """
+      select count(distinct c.book_id)
+      from book_copies c
+      where c.library_id = :libraryId and c.current_loan_id is null and c.hold_id is null
+      """, nativeQuery = true)
+  Page<Book> findAvailableAt(@Param("libraryId") Long libraryId, Pageable pageable);
+
+  // Keyset variants of findAvailableAt for cursor browsing
+  @Query(value = """
+      select b.*
+      from books b
+      where b.id < :beforeId
+        and exists (
+          select 1 from book_copies c
+          where c.book_id = b.id and c.library_id = :libraryId and c.current_loan_id is null and c.hold_id is null)
+      order by b.id desc
+      limit :limit
+      """, nativeQuery = true)
+  List<Book> findAvailableAtOlderThan(@Param("libraryId") Long libraryId,
+      @Param("beforeId") Long beforeId,
+      @Param("limit") int limit);
+
+  @Query(value = """
+      select b.*
+      from books b
+      where b.id > :afterId
+        and exists (
+          select 1 from book_copies c
+          where c.book_id = b.id and c.library_id = :libraryId and c.current_loan_id is null and c.hold_id is null)
+      order by b.id asc
+      limit :limit
+      """, nativeQuery = true)
+  List<Book> findAvailableAtNewerThan(@Param("libraryId") Long libraryId,
+      @Param("afterId") Long afterId,
+      @Param("limit") int limit);
+
+  // Server-side cursors for exports: consume inside a read-only transaction and detach rows as they are written
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+  @Query(value = "select b.* from books b where " + TRIGRAM_MATCH + FILTERS + TRIGRAM_ORDER, nativeQuery = true)
+  Stream<Book> streamFuzzyAny(@Param("q") String q,
+      @Param("pubYear") Integer pubYear,
+      @Param("availableAt") Long availableAt);
+
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+  @Query(value = "select b.* from books b where " + CJK_MATCH + FILTERS + CJK_ORDER, nativeQuery = true)
+  Stream<Book> streamCjk(@Param("q") String q,
+      @Param("pubYear") Integer pubYear,
+      @Param("availableAt") Long availableAt);
+
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+  @Query(value = """
+      select b.*
+      from books b
+      where (:pubYear is null or b.pub_year = :pubYear)
+        and (:availableAt is null or exists (
+              select 1 from book_copies c
+              where c.book_id = b.id and c.library_id = :availableAt and c.current_loan_id is null and c.hold_id is null))
+      order by b.id
+      """, nativeQuery = true)
+  Stream<Book> streamCatalog(@Param("pubYear") Integer pubYear,
+      @Param("availableAt") Long availableAt);
 
   // Keep method for potential other uses (not cached)
   List<Book> findTop20ByOrderByIdDesc();
+
+  // Keyset scan over the whole table, used to build in-memory indexes
+  List<Book> findByIdGreaterThanOrderByIdAsc(Long afterId, Limit limit);
+
+  // Seek pagination for the browse view (newest first); no count query
+  List<Book> findByIdLessThanOrderByIdDesc(Long beforeId, Limit limit);
+
+  boolean existsByIdGreaterThan(Long id);
 }
@@ -0,0 +1,80 @@
+package com.line.library.book;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.line.library.copy.BookCopy;
+import com.line.library.copy.BookCopyRepository;
+import com.line.library.library.Library;
+import com.line.library.library.LibraryRepository;
+import com.line.library.outbox.Outbox;
+import com.line.library.outbox.OutboxEventType;
+
+/**
+ * Catalog writes, each committed together with its outbox event. Cache
+ * invalidation stays with the caller (CatalogSync), after the commit.
+ */
+@Service
+public class BookService {
+
+    private final BookRepository bookRepository;
+    private final LibraryRepository libraryRepository;
+    private final BookCopyRepository copyRepository;
+    private final Outbox outbox;
+
+    public BookService(BookRepository bookRepository,
+                       LibraryRepository libraryRepository,
+                       BookCopyRepository copyRepository,
+                       Outbox outbox) {
+        this.bookRepository = bookRepository;
+        this.libraryRepository = libraryRepository;
+        this.copyRepository = copyRepository;
+        this.outbox = outbox;
+    }
+
+    @Transactional
+    public Book create(Book book) {
+        Book saved = bookRepository.save(book);
+        outbox.append(OutboxEventType.BOOK_CREATED, saved.getId(), payload(saved));
+        return saved;
+    }
+
+    @Transactional
+    public Book update(Long id, Book form) {
+        Book book = bookRepository.findById(id).orElseThrow();
+        book.setTitle(form.getTitle());
+        book.setAuthor(form.getAuthor());
+        book.setPubYear(form.getPubYear());
+        book.setType(form.getType() != null ? form.getType() : BookType.BOOK);
+        Book saved = bookRepository.save(book);
+        outbox.append(OutboxEventType.BOOK_UPDATED, saved.getId(), payload(saved));
+        return saved;
+    }
+
+    @Transactional
+    public BookCopy addCopy(Long bookId, Long libraryId, String shelfLocation) {
+        Book book = bookRepository.findById(bookId).orElseThrow();
+        Library library = libraryRepository.findById(libraryId).orElseThrow();
+
+        BookCopy copy = new BookCopy();
+        copy.setBook(book);
+        copy.setLibrary(library);
+        copy.setShelfLocation(shelfLocation);
+        BookCopy saved = copyRepository.save(copy);
+        outbox.append(OutboxEventType.COPY_ADDED, saved.getId(), Map.of("bookId", bookId, "libraryId", libraryId));
+        return saved;
+    }
+
+    // Year and type may be missing on older rows, which Map.of would reject
+    private static Map<String, Object> payload(Book book) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("title", book.getTitle());
+        payload.put("author", book.getAuthor());
+        payload.put("pubYear", book.getPubYear());
+        payload.put("type", book.getType());
+        return payload;
+    }
+}
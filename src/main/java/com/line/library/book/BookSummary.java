@@ -0,0 +1,9 @@
+package com.line.library.book;
+
+// Immutable row for list views and page caches; holds no persistence state
+public record BookSummary(Long id, String title, String author, Integer pubYear, BookType type) {
+
+    public static BookSummary of(Book book) {
+        return new BookSummary(book.getId(), book.getTitle(), book.getAuthor(), book.getPubYear(), book.getType());
+    }
+}
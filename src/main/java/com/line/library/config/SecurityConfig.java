@@ -26,9 +26,13 @@ public class SecurityConfig {
                         .requestMatchers("/signup").permitAll()
                         .requestMatchers(HttpMethod.GET, "/books/new").hasRole("LIBRARIAN")
                         .requestMatchers(HttpMethod.GET, "/books/*/edit").hasRole("LIBRARIAN")
+                        .requestMatchers(HttpMethod.GET, "/books/export").hasRole("LIBRARIAN")
                         .requestMatchers(HttpMethod.POST, "/books").hasRole("LIBRARIAN")
                         .requestMatchers(HttpMethod.POST, "/books/*").hasRole("LIBRARIAN")
                         .requestMatchers(HttpMethod.POST, "/books/*/copies").hasRole("LIBRARIAN")
+                        // Load balancer probes are anonymous; readiness stays 503 until cache warm-up ends
+                        .requestMatchers("/actuator/health/**").permitAll()
+                        .requestMatchers("/actuator/**").hasRole("LIBRARIAN")
                         .anyRequest().authenticated())
                 .formLogin(form -> form
                         .loginPage("/login")
@@ -26,6 +26,14 @@ public class BookCopy {
     @Column(name = "current_loan_id")
     private Long currentLoanId;
 
+    // Hold this copy is set aside for after a return (nullable); free means neither a loan nor a hold
+    @Column(name = "hold_id")
+    private Long holdId;
+
+    // Bumped on every write; the optimistic checkout claims a copy only at the version it read
+    @Version
+    private long version;
+
     public Long getId() {
         return id;
     }
@@ -65,4 +73,16 @@ public class BookCopy {
     public void setCurrentLoanId(Long currentLoanId) {
         this.currentLoanId = currentLoanId;
     }
+
+    public Long getHoldId() {
+        return holdId;
+    }
+
+    public void setHoldId(Long holdId) {
+        this.holdId = holdId;
+    }
+
+    public long getVersion() {
+        return version;
+    }
 }
@@ -4,6 +4,7 @@ import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
@@ -23,10 +24,21 @@ public interface BookCopyRepository extends JpaRepository<BookCopy, Long> {
         FROM BookCopy c
         WHERE c.book.id IN :bookIds
           AND c.currentLoanId IS NULL
+          AND c.holdId IS NULL
         GROUP BY c.book.id, c.library.id
         """)
     List<AvailableCount> countAvailableByBookIds(@Param("bookIds") List<Long> bookIds);
 
+    // Books with at least one free copy at a library (covered by idx_copies_avail_book_lib)
+    @Query("""
+        SELECT DISTINCT c.book.id
+        FROM BookCopy c
+        WHERE c.library.id = :libraryId
+          AND c.currentLoanId IS NULL
+          AND c.holdId IS NULL
+        """)
+    List<Long> findAvailableBookIds(@Param("libraryId") Long libraryId);
+
     interface AvailableCount {
         Long getBookId();
         Long getLibraryId();
@@ -42,4 +54,33 @@ public interface BookCopyRepository extends JpaRepository<BookCopy, Long> {
     })
     @Query("select c from BookCopy c where c.id = :id")
     java.util.Optional<BookCopy> findByIdForUpdate(@Param("id") Long id);
+
+    // "Any copy" checkout: a free copy of the book at the library, locked; copies other borrowers hold locks on
+    // are skipped rather than waited for, so concurrent borrowers of one title spread over its copies.
+    // Matches the partial index idx_copies_avail_book_lib.
+    @Query(value = """
+        select c.*
+        from book_copies c
+        where c.book_id = :bookId and c.library_id = :libraryId and c.current_loan_id is null and c.hold_id is null
+        limit 1
+        for update skip locked
+        """, nativeQuery = true)
+    java.util.Optional<BookCopy> findFreeForUpdateSkipLocked(@Param("bookId") Long bookId,
+                                                             @Param("libraryId") Long libraryId);
+
+    // Optimistic checkout: sets the loan only if the copy is free and unchanged since it was read (1 row) or not (0).
+    // A hold it was set aside for is the borrower's own (checked on the version read), so it is cleared with the claim.
+    @Modifying(flushAutomatically = true)
+    @Query("""
+        update BookCopy c
+        set c.currentLoanId = :loanId, c.holdId = null, c.version = c.version + 1
+        where c.id = :id and c.version = :version and c.currentLoanId is null
+        """)
+    int claimIfUnchanged(@Param("id") Long id, @Param("version") long version, @Param("loanId") Long loanId);
+
+    // Locks several copies in id order, so batches sharing copies queue behind each other instead of deadlocking.
+    // Waits for the locks (no NOWAIT): with a fixed order the wait is bounded by the other transaction.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from BookCopy c where c.id in :ids order by c.id")
+    List<BookCopy> findAllByIdForUpdate(@Param("ids") java.util.Collection<Long> ids);
 }
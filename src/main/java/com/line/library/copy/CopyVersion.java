@@ -0,0 +1,20 @@
+package com.line.library.copy;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.stereotype.Component;
+
+// Monotonic counter bumped after every committed copy or loan change; pages showing availability validate against it
+@Component
+public class CopyVersion {
+
+    private final AtomicLong version = new AtomicLong();
+
+    public long current() {
+        return version.get();
+    }
+
+    public long bump() {
+        return version.incrementAndGet();
+    }
+}
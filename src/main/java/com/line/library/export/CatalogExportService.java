@@ -0,0 +1,180 @@
+package com.line.library.export;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.line.library.book.Book;
+import com.line.library.book.BookRepository;
+import com.line.library.copy.BookCopyRepository;
+import com.line.library.library.Library;
+import com.line.library.library.LibraryRepository;
+import com.line.library.search.SearchText;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Streams catalog slices as CSV or JSONL.
+ *
+ * Rows come from a server-side cursor (JDBC fetch size 1000) and are
+ * written and detached in batches, so memory stays flat regardless of the
+ * export size. Availability is looked up once per batch, not per row.
+ */
+@Service
+public class CatalogExportService {
+
+    private static final int BATCH = 500;
+
+    private final BookRepository bookRepository;
+    private final BookCopyRepository copyRepository;
+    private final LibraryRepository libraryRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    public CatalogExportService(BookRepository bookRepository,
+                                BookCopyRepository copyRepository,
+                                LibraryRepository libraryRepository,
+                                EntityManager entityManager,
+                                ObjectMapper objectMapper) {
+        this.bookRepository = bookRepository;
+        this.copyRepository = copyRepository;
+        this.libraryRepository = libraryRepository;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+    }
+
+    // A cursor only streams inside a transaction on Postgres (autocommit off)
+    @Transactional(readOnly = true)
+    public long export(String q, Integer pubYear, Long availableAt, boolean withAvailability,
+                       ExportFormat format, Writer out) throws IOException {
+        List<Library> libraries = withAvailability ? libraryRepository.findAll() : List.of();
+        if (format == ExportFormat.CSV) {
+            writeCsvHeader(libraries, out);
+        }
+
+        long written = 0;
+        Stream<Book> source;
+        if (SearchText.hasCjkBigram(q)) {
+            source = bookRepository.streamCjk(q, pubYear, availableAt);
+        } else if (q != null && q.length() >= 3) {
+            source = bookRepository.streamFuzzyAny(q, pubYear, availableAt);
+        } else if (q != null) {
+            // Too short to search: matches nothing, like on /books
+            source = Stream.empty();
+        } else {
+            source = bookRepository.streamCatalog(pubYear, availableAt);
+        }
+        try (Stream<Book> rows = source) {
+            List<Book> batch = new ArrayList<>(BATCH);
+            for (Book book : (Iterable<Book>) rows::iterator) {
+                batch.add(book);
+                if (batch.size() == BATCH) {
+                    written += writeBatch(batch, libraries, format, out);
+                }
+            }
+            written += writeBatch(batch, libraries, format, out);
+        }
+        return written;
+    }
+
+    private int writeBatch(List<Book> batch, List<Library> libraries, ExportFormat format, Writer out)
+            throws IOException {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        Map<Long, Map<Long, Long>> availability = libraries.isEmpty() ? Map.of() : availabilityOf(batch);
+        for (Book book : batch) {
+            Map<Long, Long> perLibrary = availability.getOrDefault(book.getId(), Map.of());
+            if (format == ExportFormat.CSV) {
+                writeCsvRow(book, libraries, perLibrary, out);
+            } else {
+                writeJsonRow(book, libraries, perLibrary, out);
+            }
+            entityManager.detach(book);
+        }
+        out.flush();
+        int n = batch.size();
+        batch.clear();
+        return n;
+    }
+
+    private Map<Long, Map<Long, Long>> availabilityOf(List<Book> batch) {
+        Map<Long, Map<Long, Long>> result = new HashMap<>();
+        List<Long> ids = batch.stream().map(Book::getId).toList();
+        for (BookCopyRepository.AvailableCount c : copyRepository.countAvailableByBookIds(ids)) {
+            result.computeIfAbsent(c.getBookId(), k -> new HashMap<>()).put(c.getLibraryId(), c.getAvailable());
+        }
+        return result;
+    }
+
+    private static void writeCsvHeader(List<Library> libraries, Writer out) throws IOException {
+        out.write("id,title,author,pub_year,type");
+        for (Library lib : libraries) {
+            out.write(',');
+            out.write(csv("available_" + lib.getName()));
+        }
+        out.write('\n');
+    }
+
+    private static void writeCsvRow(Book book, List<Library> libraries, Map<Long, Long> perLibrary, Writer out)
+            throws IOException {
+        out.write(String.valueOf(book.getId()));
+        out.write(',');
+        out.write(csv(book.getTitle()));
+        out.write(',');
+        out.write(csv(book.getAuthor()));
+        out.write(',');
+        out.write(book.getPubYear() != null ? book.getPubYear().toString() : "");
+        out.write(',');
+        out.write(book.getType() != null ? book.getType().name() : "");
+        for (Library lib : libraries) {
+            out.write(',');
+            out.write(String.valueOf(perLibrary.getOrDefault(lib.getId(), 0L)));
+        }
+        out.write('\n');
+    }
+
+    private void writeJsonRow(Book book, List<Library> libraries, Map<Long, Long> perLibrary, Writer out)
+            throws IOException {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", book.getId());
+        row.put("title", book.getTitle());
+        row.put("author", book.getAuthor());
+        row.put("pubYear", book.getPubYear());
+        row.put("type", book.getType());
+        if (!libraries.isEmpty()) {
+            Map<String, Long> available = new LinkedHashMap<>();
+            for (Library lib : libraries) {
+                available.put(String.valueOf(lib.getId()), perLibrary.getOrDefault(lib.getId(), 0L));
+            }
+            row.put("availableByLibraryId", available);
+        }
+        try {
+            out.write(objectMapper.writeValueAsString(row));
+        } catch (JsonProcessingException ex) {
+            throw new IOException(ex);
+        }
+        out.write('\n');
+    }
+
+    // RFC 4180 quoting
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
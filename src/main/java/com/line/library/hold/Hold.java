@@ -0,0 +1,130 @@
+package com.line.library.hold;
+
+import java.time.Instant;
+
+import com.line.library.book.Book;
+import com.line.library.copy.BookCopy;
+import com.line.library.library.Library;
+import com.line.library.user.User;
+
+import jakarta.persistence.*;
+
+// A member's place in the queue for a book, optionally restricted to one library
+@Entity
+@Table(name = "holds")
+public class Hold {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(optional = false)
+    @JoinColumn(name = "user_id")
+    private User user;
+
+    @ManyToOne(optional = false)
+    @JoinColumn(name = "book_id")
+    private Book book;
+
+    // Null: a copy at any library will do
+    @ManyToOne
+    @JoinColumn(name = "library_id")
+    private Library library;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private HoldStatus status = HoldStatus.WAITING;
+
+    @Column(nullable = false)
+    private Instant placedAt = Instant.now();
+
+    // Copy set aside while READY (and the one picked up once FULFILLED)
+    @ManyToOne
+    @JoinColumn(name = "copy_id")
+    private BookCopy copy;
+
+    private Instant readyAt;
+
+    private Instant expiresAt;
+
+    private Instant closedAt;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public void setUser(User user) {
+        this.user = user;
+    }
+
+    public Book getBook() {
+        return book;
+    }
+
+    public void setBook(Book book) {
+        this.book = book;
+    }
+
+    public Library getLibrary() {
+        return library;
+    }
+
+    public void setLibrary(Library library) {
+        this.library = library;
+    }
+
+    public HoldStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(HoldStatus status) {
+        this.status = status;
+    }
+
+    public Instant getPlacedAt() {
+        return placedAt;
+    }
+
+    public void setPlacedAt(Instant placedAt) {
+        this.placedAt = placedAt;
+    }
+
+    public BookCopy getCopy() {
+        return copy;
+    }
+
+    public void setCopy(BookCopy copy) {
+        this.copy = copy;
+    }
+
+    public Instant getReadyAt() {
+        return readyAt;
+    }
+
+    public void setReadyAt(Instant readyAt) {
+        this.readyAt = readyAt;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Instant expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    public Instant getClosedAt() {
+        return closedAt;
+    }
+
+    public void setClosedAt(Instant closedAt) {
+        this.closedAt = closedAt;
+    }
+}
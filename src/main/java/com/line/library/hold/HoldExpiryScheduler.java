@@ -0,0 +1,78 @@
+package com.line.library.hold;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.line.library.sync.CatalogSync;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Expires holds that were not picked up. Every tick advances the
+ * {@link HoldExpiryWheel} and closes only the holds it hands back, each in
+ * its own transaction; a copy they release goes to the next in line.
+ *
+ * Holds made ready on this node are added to the wheel when they commit.
+ * The reload (at startup, then every reload-ms) adds the ready holds due
+ * within the next two periods from the partial index idx_holds_ready_expiry,
+ * covering restarts and holds made ready on other nodes. Expiry is
+ * idempotent, so several nodes holding the same entry is harmless.
+ */
+@Component
+public class HoldExpiryScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(HoldExpiryScheduler.class);
+    // A hold that could not be expired (e.g. its copy was locked) is tried again this much later
+    private static final Duration RETRY = Duration.ofMinutes(1);
+
+    private final HoldExpiryWheel wheel;
+    private final HoldService holdService;
+    private final HoldRepository holdRepository;
+    private final CatalogSync catalogSync;
+    private final Duration reloadPeriod;
+    private final Counter expired;
+
+    public HoldExpiryScheduler(HoldExpiryWheel wheel,
+                               HoldService holdService,
+                               HoldRepository holdRepository,
+                               CatalogSync catalogSync,
+                               MeterRegistry meterRegistry,
+                               @Value("${app.holds.expiry.reload-ms:3600000}") long reloadMs) {
+        this.wheel = wheel;
+        this.holdService = holdService;
+        this.holdRepository = holdRepository;
+        this.catalogSync = catalogSync;
+        this.reloadPeriod = Duration.ofMillis(reloadMs);
+        this.expired = meterRegistry.counter("holds.expired");
+        meterRegistry.gauge("holds.expiry.scheduled", wheel, HoldExpiryWheel::size);
+    }
+
+    @Scheduled(fixedDelayString = "${app.holds.expiry.tick-ms:1000}")
+    public void tick() {
+        for (Long holdId : wheel.advance(Instant.now())) {
+            try {
+                holdService.expire(holdId).ifPresent(copyId -> {
+                    expired.increment();
+                    catalogSync.copiesChanged(copyId);
+                });
+            } catch (RuntimeException ex) {
+                log.warn("Could not expire hold {}, retrying in {}", holdId, RETRY, ex);
+                wheel.schedule(holdId, Instant.now().plus(RETRY));
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.holds.expiry.reload-ms:3600000}")
+    public void reload() {
+        for (HoldRepository.ReadyHold hold : holdRepository.findReadyExpiringBefore(Instant.now().plus(reloadPeriod.multipliedBy(2)))) {
+            wheel.schedule(hold.getId(), hold.getExpiresAt());
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.line.library.hold;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+// Expiry times of this node's ready holds, in a TimerWheel; HoldExpiryScheduler advances it
+@Component
+public class HoldExpiryWheel {
+
+    private final TimerWheel wheel;
+
+    public HoldExpiryWheel(@Value("${app.holds.expiry.tick-ms:1000}") long tickMs,
+                           @Value("${app.holds.expiry.wheel-slots:3600}") int slots) {
+        this.wheel = new TimerWheel(tickMs, slots, System.currentTimeMillis());
+    }
+
+    public synchronized void schedule(long holdId, Instant expiresAt) {
+        wheel.schedule(holdId, expiresAt.toEpochMilli());
+    }
+
+    public synchronized void cancel(long holdId) {
+        wheel.cancel(holdId);
+    }
+
+    // Holds whose expiry time has passed, removed from the wheel
+    public synchronized List<Long> advance(Instant now) {
+        return wheel.advance(now.toEpochMilli());
+    }
+
+    public synchronized int size() {
+        return wheel.size();
+    }
+}
@@ -0,0 +1,80 @@
+package com.line.library.hold;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.line.library.user.User;
+
+import jakarta.persistence.LockModeType;
+
+public interface HoldRepository extends JpaRepository<Hold, Long> {
+
+    // Serializes queue changes of one book (placing a hold, handing out a copy) on the book's row,
+    // so a copy returned while a hold is being placed is never left free with the hold waiting
+    @Query(value = "select id from books where id = :bookId for update", nativeQuery = true)
+    Optional<Long> lockQueue(@Param("bookId") Long bookId);
+
+    // lockQueue for several books at once, in id order so two batches cannot deadlock
+    @Query(value = "select id from books where id in :bookIds order by id for update", nativeQuery = true)
+    List<Long> lockQueues(@Param("bookIds") Collection<Long> bookIds);
+
+    @Query("select distinct h.book.id from Hold h where h.book.id in :bookIds and h.status = com.line.library.hold.HoldStatus.WAITING")
+    List<Long> findBookIdsWithWaitingHolds(@Param("bookIds") Collection<Long> bookIds);
+
+    // Oldest waiting hold a copy at this library can serve (idx_holds_queue)
+    @Query(value = """
+        select h.*
+        from holds h
+        where h.book_id = :bookId and h.status = 'WAITING'
+          and (h.library_id is null or h.library_id = :libraryId)
+        order by h.placed_at, h.id
+        limit 1
+        """, nativeQuery = true)
+    Optional<Hold> findQueueHead(@Param("bookId") Long bookId, @Param("libraryId") Long libraryId);
+
+    @Query("""
+        select h from Hold h
+        where h.user = :user and h.book.id = :bookId and h.status in :statuses
+        """)
+    Optional<Hold> findByUserAndBook(@Param("user") User user,
+                                     @Param("bookId") Long bookId,
+                                     @Param("statuses") Collection<HoldStatus> statuses);
+
+    List<Hold> findByUserAndStatusInOrderByPlacedAtAsc(User user, Collection<HoldStatus> statuses);
+
+    // Waiting holds queued before this one: its 0-based position, ignoring library restrictions.
+    // Compared with the stored placed_at, which the database may have rounded.
+    @Query("""
+        select count(h) from Hold h, Hold me
+        where me.id = :id and h.book = me.book and h.status = com.line.library.hold.HoldStatus.WAITING
+          and (h.placedAt < me.placedAt or (h.placedAt = me.placedAt and h.id < me.id))
+        """)
+    long countAhead(@Param("id") Long id);
+
+    // Scalar, so the hold itself is first loaded by the locking read below
+    @Query("select h.copy.id from Hold h where h.id = :id")
+    Optional<Long> findCopyId(@Param("id") Long id);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select h from Hold h where h.id = :id")
+    Optional<Hold> findByIdForUpdate(@Param("id") Long id);
+
+    // Ready holds due before a point in time (idx_holds_ready_expiry), for loading the expiry wheel
+    @Query("""
+        select h.id as id, h.expiresAt as expiresAt from Hold h
+        where h.status = com.line.library.hold.HoldStatus.READY and h.expiresAt < :before
+        """)
+    List<ReadyHold> findReadyExpiringBefore(@Param("before") Instant before);
+
+    interface ReadyHold {
+        Long getId();
+        Instant getExpiresAt();
+    }
+}
@@ -0,0 +1,271 @@
+package com.line.library.hold;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.line.library.book.Book;
+import com.line.library.book.BookRepository;
+import com.line.library.copy.BookCopy;
+import com.line.library.copy.BookCopyRepository;
+import com.line.library.library.Library;
+import com.line.library.library.LibraryRepository;
+import com.line.library.outbox.Outbox;
+import com.line.library.outbox.OutboxEventType;
+import com.line.library.user.User;
+import com.line.library.user.UserRepository;
+
+/**
+ * FIFO holds per book. A copy that becomes free (returned, or released by
+ * a hold that was cancelled or not picked up) is set aside for the oldest
+ * waiting hold it can serve, in the transaction that freed it: the hold
+ * turns READY and the copy's hold_id keeps everyone else from borrowing it
+ * until the member picks it up or the pickup window ends.
+ *
+ * Expiry times go into the {@link HoldExpiryWheel} once the transaction
+ * commits, so nothing polls the holds table for due rows.
+ *
+ * Row locks are taken copy first, then hold, then the book's queue (its
+ * books row), the same order as checkouts that pick up a hold.
+ */
+@Service
+public class HoldService {
+
+    public static final String ON_HOLD = "Copy is on hold for another member";
+    private static final List<HoldStatus> OPEN = List.of(HoldStatus.WAITING, HoldStatus.READY);
+
+    private final HoldRepository holdRepository;
+    private final BookRepository bookRepository;
+    private final LibraryRepository libraryRepository;
+    private final UserRepository userRepository;
+    private final BookCopyRepository copyRepository;
+    private final HoldExpiryWheel expiryWheel;
+    private final Outbox outbox;
+    private final Duration pickupWindow;
+
+    public HoldService(HoldRepository holdRepository,
+                       BookRepository bookRepository,
+                       LibraryRepository libraryRepository,
+                       UserRepository userRepository,
+                       BookCopyRepository copyRepository,
+                       HoldExpiryWheel expiryWheel,
+                       Outbox outbox,
+                       @Value("${app.holds.pickup-window:3d}") Duration pickupWindow) {
+        this.holdRepository = holdRepository;
+        this.bookRepository = bookRepository;
+        this.libraryRepository = libraryRepository;
+        this.userRepository = userRepository;
+        this.copyRepository = copyRepository;
+        this.expiryWheel = expiryWheel;
+        this.outbox = outbox;
+        this.pickupWindow = pickupWindow;
+    }
+
+    // Joins the queue for a book; libraryId null takes a copy from any library
+    @Transactional
+    public Hold place(Long bookId, Long libraryId, String userEmail) {
+        User user = userRepository.findByEmail(userEmail).orElseThrow();
+        Book book = bookRepository.findById(bookId).orElseThrow();
+        Library library = libraryId != null ? libraryRepository.findById(libraryId).orElseThrow() : null;
+
+        holdRepository.lockQueue(bookId).orElseThrow();
+        if (holdRepository.findByUserAndBook(user, bookId, OPEN).isPresent()) {
+            throw new IllegalStateException("You already have a hold on this book");
+        }
+        // Checked under the queue lock: a copy returned after this point is handed to the new hold
+        boolean available = copyRepository.countAvailableByBookIds(List.of(bookId)).stream()
+                .anyMatch(c -> c.getAvailable() > 0 && (libraryId == null || libraryId.equals(c.getLibraryId())));
+        if (available) {
+            throw new IllegalStateException("A copy is available now; borrow it instead");
+        }
+
+        Hold hold = new Hold();
+        hold.setUser(user);
+        hold.setBook(book);
+        hold.setLibrary(library);
+        hold.setPlacedAt(Instant.now());
+        return holdRepository.save(hold);
+    }
+
+    // Leaves the queue, or gives up a copy set aside; returns the copy that went to the next member or back on the shelf
+    @Transactional
+    public Optional<Long> cancel(Long holdId, String userEmail) {
+        BookCopy copy = lockHeldCopy(holdId);
+        Hold hold = holdRepository.findByIdForUpdate(holdId).orElseThrow();
+        if (!hold.getUser().getEmail().equals(userEmail)) {
+            throw new IllegalStateException("You cannot cancel another member's hold");
+        }
+        if (!OPEN.contains(hold.getStatus())) {
+            throw new IllegalStateException("Hold is no longer active");
+        }
+        return close(hold, copy, HoldStatus.CANCELLED);
+    }
+
+    // Called by HoldExpiryScheduler when the wheel says the pickup window is over
+    @Transactional
+    public Optional<Long> expire(Long holdId) {
+        BookCopy copy = lockHeldCopy(holdId);
+        Optional<Hold> hold = holdRepository.findByIdForUpdate(holdId)
+                .filter(h -> h.getStatus() == HoldStatus.READY && !h.getExpiresAt().isAfter(Instant.now()));
+        if (hold.isEmpty()) {
+            return Optional.empty();
+        }
+        return close(hold.get(), copy, HoldStatus.EXPIRED);
+    }
+
+    // Copy row before the hold row, as checkouts lock the copy before fulfilling its hold
+    private BookCopy lockHeldCopy(Long holdId) {
+        return holdRepository.findCopyId(holdId)
+                .map(id -> copyRepository.findAllByIdForUpdate(List.of(id)).get(0))
+                .orElse(null);
+    }
+
+    private Optional<Long> close(Hold hold, BookCopy copy, HoldStatus status) {
+        if (copy == null && hold.getCopy() != null) {
+            // Turned READY between the two lookups; the copy's @Version catches anything missed here
+            copy = copyRepository.findAllByIdForUpdate(List.of(hold.getCopy().getId())).get(0);
+        }
+        hold.setStatus(status);
+        hold.setClosedAt(Instant.now());
+        long id = hold.getId();
+        afterCommit(() -> expiryWheel.cancel(id));
+        if (copy == null || !Objects.equals(copy.getHoldId(), hold.getId())) {
+            return Optional.empty();
+        }
+        copy.setHoldId(null);
+        offer(copy);
+        return Optional.of(copy.getId());
+    }
+
+    /**
+     * Sets a copy that has just become free aside for the oldest waiting
+     * hold it can serve. Runs in the caller's transaction, which must have
+     * cleared the copy's loan; false when nobody is waiting.
+     */
+    @Transactional
+    public boolean offer(BookCopy copy) {
+        if (copy.getCurrentLoanId() != null || copy.getHoldId() != null) {
+            return false;
+        }
+        Long bookId = copy.getBook().getId();
+        holdRepository.lockQueue(bookId);
+        Optional<Hold> head = holdRepository.findQueueHead(bookId, copy.getLibrary().getId());
+        if (head.isEmpty()) {
+            return false;
+        }
+        Instant now = Instant.now();
+        Hold hold = head.get();
+        hold.setStatus(HoldStatus.READY);
+        hold.setCopy(copy);
+        hold.setReadyAt(now);
+        hold.setExpiresAt(now.plus(pickupWindow));
+        copy.setHoldId(hold.getId());
+        copyRepository.save(copy);
+        long id = hold.getId();
+        Instant expiresAt = hold.getExpiresAt();
+        afterCommit(() -> expiryWheel.schedule(id, expiresAt));
+        // Enough for the pickup notice (HoldReadyNotifier) without reading the hold back
+        outbox.append(OutboxEventType.HOLD_READY, id, Map.of(
+                "userId", hold.getUser().getId(),
+                "email", hold.getUser().getEmail(),
+                "bookId", bookId,
+                "title", copy.getBook().getTitle(),
+                "copyId", copy.getId(),
+                "library", copy.getLibrary().getName(),
+                "expiresAt", expiresAt.toString()));
+        return true;
+    }
+
+    /**
+     * {@link #offer} for a batch of copies freed in the caller's transaction
+     * (bulk returns). Locks all their books' queues first, then offers only
+     * the copies of books someone is waiting for; returns how many were set
+     * aside.
+     */
+    @Transactional
+    public int offerAll(Map<Long, Long> bookIdByCopyId) {
+        if (bookIdByCopyId.isEmpty()) {
+            return 0;
+        }
+        Set<Long> bookIds = new HashSet<>(bookIdByCopyId.values());
+        holdRepository.lockQueues(bookIds);
+        Set<Long> waited = new HashSet<>(holdRepository.findBookIdsWithWaitingHolds(bookIds));
+        if (waited.isEmpty()) {
+            return 0;
+        }
+        List<Long> copyIds = bookIdByCopyId.entrySet().stream()
+                .filter(e -> waited.contains(e.getValue()))
+                .map(Map.Entry::getKey)
+                .toList();
+        int offered = 0;
+        for (BookCopy copy : copyRepository.findAllById(copyIds)) {
+            if (offer(copy)) {
+                offered++;
+            }
+        }
+        return offered;
+    }
+
+    // The ready hold a copy is set aside for, if any
+    public Optional<Hold> readyHold(BookCopy copy) {
+        if (copy.getHoldId() == null) {
+            return Optional.empty();
+        }
+        return holdRepository.findById(copy.getHoldId()).filter(h -> h.getStatus() == HoldStatus.READY);
+    }
+
+    // For checkouts: the user's own hold on the copy, which the loan fulfils; throws when it is set aside for someone else
+    public Optional<Hold> checkHold(User user, BookCopy copy) {
+        Optional<Hold> hold = readyHold(copy);
+        if (hold.isPresent() && !hold.get().getUser().getId().equals(user.getId())) {
+            throw new IllegalStateException(ON_HOLD);
+        }
+        return hold;
+    }
+
+    // Marks a ready hold picked up; the caller clears the copy's hold_id with its loan
+    public void fulfil(Hold hold) {
+        hold.setStatus(HoldStatus.FULFILLED);
+        hold.setClosedAt(Instant.now());
+        long id = hold.getId();
+        afterCommit(() -> expiryWheel.cancel(id));
+    }
+
+    public Optional<Hold> openHold(String userEmail, Long bookId) {
+        return userRepository.findByEmail(userEmail)
+                .flatMap(user -> holdRepository.findByUserAndBook(user, bookId, OPEN));
+    }
+
+    public List<Hold> openHolds(User user) {
+        return holdRepository.findByUserAndStatusInOrderByPlacedAtAsc(user, OPEN);
+    }
+
+    // 1 for the next in line
+    public long position(Hold hold) {
+        return holdRepository.countAhead(hold.getId()) + 1;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
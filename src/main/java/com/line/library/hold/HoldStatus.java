@@ -0,0 +1,13 @@
+package com.line.library.hold;
+
+public enum HoldStatus {
+    // In the book's queue
+    WAITING,
+    // A returned copy is set aside for the member until expiresAt
+    READY,
+    // Picked up: the member borrowed the copy
+    FULFILLED,
+    CANCELLED,
+    // Not picked up in time; the copy went to the next in line
+    EXPIRED
+}
@@ -0,0 +1,84 @@
+package com.line.library.hold;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hashed timing wheel of ids with deadlines (epoch millis). A deadline is
+ * rounded up to a tick and kept in slot tick % slots; advancing to "now"
+ * visits only the slots of the ticks that passed, and takes out the entries
+ * whose tick has come. Entries more than one turn away stay in their slot
+ * and are skipped until their turn, so schedule and cancel are O(1) and a
+ * tick costs the size of one slot, however far away the deadlines are.
+ *
+ * Scheduling an id again replaces its deadline. Not thread-safe; callers
+ * synchronize.
+ */
+final class TimerWheel {
+
+    private final long tickMs;
+    private final List<Map<Long, Long>> slots;
+    // id -> deadline tick, for replacing and cancelling
+    private final Map<Long, Long> ticks = new HashMap<>();
+    private long currentTick;
+
+    TimerWheel(long tickMs, int slotCount, long nowMs) {
+        if (tickMs <= 0 || slotCount <= 0) {
+            throw new IllegalArgumentException("tickMs and slotCount must be positive");
+        }
+        this.tickMs = tickMs;
+        this.slots = new ArrayList<>(slotCount);
+        for (int i = 0; i < slotCount; i++) {
+            slots.add(new HashMap<>());
+        }
+        this.currentTick = nowMs / tickMs;
+    }
+
+    void schedule(long id, long deadlineMs) {
+        cancel(id);
+        // Never before the deadline; anything already due goes out on the next advance
+        long tick = Math.max(Math.floorDiv(deadlineMs + tickMs - 1, tickMs), currentTick + 1);
+        slot(tick).put(id, tick);
+        ticks.put(id, tick);
+    }
+
+    boolean cancel(long id) {
+        Long tick = ticks.remove(id);
+        return tick != null && slot(tick).remove(id) != null;
+    }
+
+    // Removes and returns the ids due by nowMs
+    List<Long> advance(long nowMs) {
+        long target = nowMs / tickMs;
+        List<Long> due = new ArrayList<>();
+        if (target <= currentTick) {
+            return due;
+        }
+        // After a long pause every slot is visited once
+        long from = Math.max(currentTick + 1, target - slots.size() + 1);
+        for (long t = from; t <= target; t++) {
+            Iterator<Map.Entry<Long, Long>> it = slot(t).entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Long, Long> e = it.next();
+                if (e.getValue() <= target) {
+                    due.add(e.getKey());
+                    ticks.remove(e.getKey());
+                    it.remove();
+                }
+            }
+        }
+        currentTick = target;
+        return due;
+    }
+
+    int size() {
+        return ticks.size();
+    }
+
+    private Map<Long, Long> slot(long tick) {
+        return slots.get((int) Math.floorMod(tick, (long) slots.size()));
+    }
+}
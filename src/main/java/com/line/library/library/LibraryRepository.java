@@ -1,6 +1,17 @@
 package com.line.library.library;
 
+import java.util.List;
+
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import jakarta.persistence.QueryHint;
 
 public interface LibraryRepository extends JpaRepository<Library, Long> {
+
+    // Read on every /books request; the ids come from the query cache and the rows from the entity cache
+    @Override
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    List<Library> findAll();
 }
@@ -0,0 +1,95 @@
+package com.line.library.loan;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.line.library.book.BookType;
+import com.line.library.user.UserRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Finds per-user loan counters that disagree with the loans table and
+ * rewrites them. The comparison runs without locks; each suspect user is
+ * then recounted in its own transaction while holding the counter row lock,
+ * which checkouts and returns also take, so a repair never overwrites a
+ * concurrent change. Repairs are counted as loans.counters.drift.
+ */
+@Component
+public class ActiveLoanCountReconciler {
+
+    private static final Logger log = LoggerFactory.getLogger(ActiveLoanCountReconciler.class);
+
+    private final UserLoanCounterRepository counterRepository;
+    private final LoanRepository loanRepository;
+    private final UserRepository userRepository;
+    private final ActiveLoanCounters counters;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter drift;
+
+    public ActiveLoanCountReconciler(UserLoanCounterRepository counterRepository,
+                                     LoanRepository loanRepository,
+                                     UserRepository userRepository,
+                                     ActiveLoanCounters counters,
+                                     TransactionTemplate transactionTemplate,
+                                     MeterRegistry meterRegistry) {
+        this.counterRepository = counterRepository;
+        this.loanRepository = loanRepository;
+        this.userRepository = userRepository;
+        this.counters = counters;
+        this.transactionTemplate = transactionTemplate;
+        this.drift = meterRegistry.counter("loans.counters.drift");
+    }
+
+    @Scheduled(cron = "${app.loan.counters.reconcile-cron:0 30 3 * * *}")
+    public int reconcile() {
+        Map<Long, long[]> actual = new HashMap<>();
+        for (LoanRepository.UserActiveLoanCount c : loanRepository.countActiveByUserAndType()) {
+            long[] byType = actual.computeIfAbsent(c.getUserId(), k -> new long[2]);
+            byType[c.getType() == BookType.PUBLICATION ? 1 : 0] = c.getLoans();
+        }
+        List<Long> suspects = new ArrayList<>();
+        for (UserLoanCounter c : counterRepository.findAll()) {
+            long[] expected = actual.getOrDefault(c.getUserId(), new long[2]);
+            if (c.getActiveBooks() != expected[0] || c.getActivePublications() != expected[1]) {
+                suspects.add(c.getUserId());
+            }
+        }
+
+        int repaired = 0;
+        for (Long userId : suspects) {
+            Boolean fixed = transactionTemplate.execute(status -> {
+                UserLoanCounter locked = counterRepository.findByIdForUpdate(userId).orElse(null);
+                if (locked == null) {
+                    return false;
+                }
+                UserLoanCounter truth = counters.recount(userRepository.getReferenceById(userId));
+                if (locked.getActiveBooks() == truth.getActiveBooks()
+                        && locked.getActivePublications() == truth.getActivePublications()) {
+                    // Moved by a checkout or return between the two reads
+                    return false;
+                }
+                log.warn("Repairing loan counters of user {}: books {} -> {}, publications {} -> {}", userId,
+                        locked.getActiveBooks(), truth.getActiveBooks(),
+                        locked.getActivePublications(), truth.getActivePublications());
+                locked.setActiveBooks(truth.getActiveBooks());
+                locked.setActivePublications(truth.getActivePublications());
+                return true;
+            });
+            if (Boolean.TRUE.equals(fixed)) {
+                repaired++;
+            }
+        }
+        drift.increment(repaired);
+        return repaired;
+    }
+}
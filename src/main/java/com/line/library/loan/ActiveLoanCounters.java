@@ -0,0 +1,103 @@
+package com.line.library.loan;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.stereotype.Component;
+
+import com.line.library.book.BookType;
+import com.line.library.copy.BookCopy;
+import com.line.library.user.User;
+
+/**
+ * Per-user active-loan counters behind the borrowing limits. Every method
+ * joins the caller's transaction, so a counter moves together with the loan
+ * it counts. A user's row is created from the loans table when an update
+ * finds none, so a user who has a row pays one statement per change;
+ * {@link ActiveLoanCountReconciler} repairs any drift.
+ */
+@Component
+public class ActiveLoanCounters {
+
+    private final UserLoanCounterRepository repository;
+    private final LoanRepository loanRepository;
+
+    public ActiveLoanCounters(UserLoanCounterRepository repository, LoanRepository loanRepository) {
+        this.repository = repository;
+        this.loanRepository = loanRepository;
+    }
+
+    // Takes one slot of the copy's type for loaning it to the user; false when the user is already at the limit.
+    // The caller may have written that loan in this transaction already or not.
+    public boolean tryIncrement(User user, BookCopy copy) {
+        BookType type = copy.getBook().getType();
+        if (increment(user, type) == 1) {
+            return true;
+        }
+        // No row yet, or at the limit. A missing row is counted from the loans table without this copy's loan,
+        // then takes the slot like any other.
+        UserLoanCounter counter = recount(user);
+        if (loanRepository.existsByCopyAndReturnedAtIsNull(copy)) {
+            counter.set(type, counter.get(type) - 1);
+        }
+        insertIfAbsent(counter);
+        return increment(user, type) == 1;
+    }
+
+    // For a return already written in this transaction
+    public void decrement(User user, BookType type) {
+        if (decrementRow(user, type) == 1) {
+            return;
+        }
+        // No row yet (the recount leaves the returned loan out), or a concurrent first change created it meanwhile
+        if (insertIfAbsent(recount(user)) == 0) {
+            decrementRow(user, type);
+        }
+    }
+
+    // Locked row for callers that take several slots at once (batch checkout); change it in place.
+    // Take it before writing the loans, since a missing row is counted from the loans table.
+    public UserLoanCounter lock(User user) {
+        Optional<UserLoanCounter> locked = repository.findByIdForUpdate(user.getId());
+        if (locked.isPresent()) {
+            return locked.get();
+        }
+        insertIfAbsent(recount(user));
+        return repository.findByIdForUpdate(user.getId()).orElseThrow();
+    }
+
+    private int increment(User user, BookType type) {
+        return type == BookType.PUBLICATION
+                ? repository.incrementPublications(user.getId(), limit(type))
+                : repository.incrementBooks(user.getId(), limit(type));
+    }
+
+    private int decrementRow(User user, BookType type) {
+        return type == BookType.PUBLICATION
+                ? repository.decrementPublications(user.getId())
+                : repository.decrementBooks(user.getId());
+    }
+
+    // Two first changes racing here: the second insert waits for the first and becomes a no-op
+    private int insertIfAbsent(UserLoanCounter counter) {
+        return repository.insertIfAbsent(counter.getUserId(), counter.getActiveBooks(), counter.getActivePublications());
+    }
+
+    private static long limit(BookType type) {
+        return type == BookType.PUBLICATION ? LoanService.MAX_ACTIVE_PUBLICATIONS : LoanService.MAX_ACTIVE_BOOKS;
+    }
+
+    // Counter values computed from the loans table
+    UserLoanCounter recount(User user) {
+        Map<BookType, Long> active = new EnumMap<>(BookType.class);
+        for (LoanRepository.ActiveLoanCount c : loanRepository.countActiveByType(user)) {
+            active.put(c.getType(), c.getLoans());
+        }
+        UserLoanCounter counter = new UserLoanCounter();
+        counter.setUserId(user.getId());
+        counter.setActiveBooks(active.getOrDefault(BookType.BOOK, 0L));
+        counter.setActivePublications(active.getOrDefault(BookType.PUBLICATION, 0L));
+        return counter;
+    }
+}
@@ -0,0 +1,140 @@
+package com.line.library.loan;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.line.library.hold.HoldService;
+
+/**
+ * Librarian returns of a whole cart of scanned copies, whoever borrowed
+ * them (PostgreSQL only, like {@link SingleStatementCheckout}). One
+ * statement locks the copies in id order, closes their active loans with
+ * UPDATE ... RETURNING, clears book_copies.current_loan_id and appends the
+ * LOAN_RETURNED outbox events. Then, as in {@link LoanService#returnLoan},
+ * the freed copies go to waiting holds and the borrowers' counters drop,
+ * in one batch per table instead of one return per copy.
+ */
+@Component
+public class BulkReturn {
+
+    public static final int MAX_COPIES = 500;
+
+    static final String RETURN_SQL = """
+        with locked as (
+          select bc.id, bc.book_id from book_copies bc
+          where bc.id in (:copyIds)
+          order by bc.id
+          for update
+        ), returned as (
+          update loans l
+          set returned_at = now()
+          from locked
+          where l.copy_id = locked.id and l.returned_at is null
+          returning l.id, l.user_id, l.copy_id, l.returned_at
+        ), cleared as (
+          update book_copies bc
+          set current_loan_id = null, version = bc.version + 1
+          from returned r
+          where bc.id = r.copy_id and bc.current_loan_id = r.id
+        ), event as (
+          -- Same payload as LoanService appends through Outbox
+          insert into outbox_events (recorded_at, aggregate_type, aggregate_id, event_type, payload)
+          select now(), 'loan', r.id, 'LOAN_RETURNED',
+                 json_build_object('userId', r.user_id, 'copyId', r.copy_id, 'bookId', k.book_id,
+                                   'returnedAt', to_char(r.returned_at at time zone 'UTC', 'YYYY-MM-DD"T"HH24:MI:SS.US"Z"'))::text
+          from returned r join locked k on k.id = r.copy_id
+        )
+        select k.id as copy_id, k.book_id, r.id as loan_id, r.user_id, cast(b.type as text) as type
+        from locked k
+        join books b on b.id = k.book_id
+        left join returned r on r.copy_id = k.id
+        """;
+
+    // Users without a counter row yet are left alone: it is created from the loans table, which already has the returns
+    static final String DECREMENT_SQL = """
+        update user_loan_counters
+        set active_books = greatest(active_books - :books, 0),
+            active_publications = greatest(active_publications - :publications, 0)
+        where user_id = :userId
+        """;
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final HoldService holds;
+
+    public BulkReturn(NamedParameterJdbcTemplate jdbc, HoldService holds) {
+        this.jdbc = jdbc;
+        this.holds = holds;
+    }
+
+    // One outcome per distinct copy id, in request order
+    @Transactional
+    public List<ReturnOutcome> returnCopies(List<Long> copyIds) {
+        if (copyIds.size() > MAX_COPIES) {
+            throw new IllegalArgumentException("At most " + MAX_COPIES + " copies per return");
+        }
+        List<Long> requested = List.copyOf(new LinkedHashSet<>(copyIds));
+        if (requested.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Long> loanIdByCopyId = new HashMap<>();
+        Map<Long, Long> bookIdByCopyId = new HashMap<>();
+        // Sorted so the counter rows are locked in user id order
+        Map<Long, long[]> returnedByUser = new TreeMap<>();
+        Set<Long> found = new HashSet<>();
+        jdbc.query(RETURN_SQL, new MapSqlParameterSource("copyIds", requested), rs -> {
+            long copyId = rs.getLong("copy_id");
+            found.add(copyId);
+            long loanId = rs.getLong("loan_id");
+            if (rs.wasNull()) {
+                return;
+            }
+            loanIdByCopyId.put(copyId, loanId);
+            bookIdByCopyId.put(copyId, rs.getLong("book_id"));
+            String type = rs.getString("type");
+            if (type != null) {
+                long[] counts = returnedByUser.computeIfAbsent(rs.getLong("user_id"), u -> new long[2]);
+                counts["PUBLICATION".equals(type) ? 1 : 0]++;
+            }
+        });
+
+        // Queues before counters, the order returnLoan takes them in
+        holds.offerAll(bookIdByCopyId);
+        decrementCounters(returnedByUser);
+
+        List<ReturnOutcome> outcomes = new ArrayList<>(requested.size());
+        for (Long copyId : requested) {
+            Long loanId = loanIdByCopyId.get(copyId);
+            if (loanId != null) {
+                outcomes.add(ReturnOutcome.returned(copyId, loanId));
+            } else {
+                outcomes.add(ReturnOutcome.failed(copyId, found.contains(copyId) ? "Copy is not on loan" : "Copy not found"));
+            }
+        }
+        return outcomes;
+    }
+
+    private void decrementCounters(Map<Long, long[]> returnedByUser) {
+        if (returnedByUser.isEmpty()) {
+            return;
+        }
+        SqlParameterSource[] batch = returnedByUser.entrySet().stream()
+                .map(e -> new MapSqlParameterSource()
+                        .addValue("userId", e.getKey())
+                        .addValue("books", e.getValue()[0])
+                        .addValue("publications", e.getValue()[1]))
+                .toArray(SqlParameterSource[]::new);
+        jdbc.batchUpdate(DECREMENT_SQL, batch);
+    }
+}
@@ -0,0 +1,10 @@
+package com.line.library.loan;
+
+public enum CheckoutMode {
+    // Lock the copy row with NOWAIT; a concurrent borrower fails immediately
+    PESSIMISTIC,
+    // Read without locks, claim with a conditional update on the copy's version; retried with jitter on conflict
+    OPTIMISTIC,
+    // One data-modifying CTE on PostgreSQL: lock, checks, limit slot, loan insert and copy update in a round trip
+    SINGLE_STATEMENT
+}
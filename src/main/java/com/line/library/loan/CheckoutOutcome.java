@@ -0,0 +1,17 @@
+package com.line.library.loan;
+
+// Result for one copy of a batch checkout: the new loan's id, or why the copy was not loaned
+public record CheckoutOutcome(long copyId, Long loanId, String error) {
+
+    public static CheckoutOutcome loaned(long copyId, long loanId) {
+        return new CheckoutOutcome(copyId, loanId, null);
+    }
+
+    public static CheckoutOutcome failed(long copyId, String error) {
+        return new CheckoutOutcome(copyId, null, error);
+    }
+
+    public boolean isLoaned() {
+        return loanId != null;
+    }
+}
@@ -0,0 +1,138 @@
+package com.line.library.loan;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Single-copy checkout in the mode chosen by app.loan.checkout-mode.
+ *
+ * In OPTIMISTIC mode a lost race (the copy's version moved, or another
+ * transaction's loan hit uq_loans_active_copy first) is retried in a new
+ * transaction after a full-jitter exponential backoff, up to max-attempts.
+ * Retries usually end in "Copy is already loaned" from the winner's commit,
+ * which is the answer the user needs. Both modes publish
+ * loans.checkout{mode,outcome}, loans.checkout.conflicts{mode} and
+ * loans.checkout.retries{mode} for load-test comparison.
+ *
+ * SINGLE_STATEMENT runs {@link SingleStatementCheckout} (PostgreSQL only)
+ * and hands back a reference to the new loan without loading it.
+ */
+@Component
+public class LoanCheckout {
+
+    static final String BUSY = "Copy is busy, please try again";
+
+    private final LoanService loanService;
+    private final SingleStatementCheckout singleStatement;
+    private final LoanRepository loanRepository;
+    private final CheckoutMode mode;
+    private final int maxAttempts;
+    private final long backoffMs;
+    private final long maxBackoffMs;
+    private final MeterRegistry meterRegistry;
+    private final Counter conflicts;
+    private final Counter retries;
+
+    public LoanCheckout(LoanService loanService,
+                        SingleStatementCheckout singleStatement,
+                        LoanRepository loanRepository,
+                        MeterRegistry meterRegistry,
+                        @Value("${app.loan.checkout-mode:PESSIMISTIC}") CheckoutMode mode,
+                        @Value("${app.loan.optimistic.max-attempts:5}") int maxAttempts,
+                        @Value("${app.loan.optimistic.backoff-ms:5}") long backoffMs,
+                        @Value("${app.loan.optimistic.max-backoff-ms:100}") long maxBackoffMs) {
+        this.loanService = loanService;
+        this.singleStatement = singleStatement;
+        this.loanRepository = loanRepository;
+        this.meterRegistry = meterRegistry;
+        this.mode = mode;
+        this.maxAttempts = maxAttempts;
+        this.backoffMs = backoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+        String tag = mode.name().toLowerCase();
+        this.conflicts = meterRegistry.counter("loans.checkout.conflicts", "mode", tag);
+        this.retries = meterRegistry.counter("loans.checkout.retries", "mode", tag);
+    }
+
+    public Loan loanCopy(Long copyId, String userEmail) {
+        long t0 = System.nanoTime();
+        String outcome = "error";
+        try {
+            Loan loan = switch (mode) {
+                case OPTIMISTIC -> loanOptimistic(copyId, userEmail);
+                case SINGLE_STATEMENT -> loanSingleStatement(copyId, userEmail);
+                default -> loanPessimistic(copyId, userEmail);
+            };
+            outcome = "loaned";
+            return loan;
+        } catch (IllegalStateException ex) {
+            outcome = BUSY.equals(ex.getMessage()) ? "busy" : "refused";
+            throw ex;
+        } finally {
+            Timer.builder("loans.checkout")
+                    .tag("mode", mode.name().toLowerCase())
+                    .tag("outcome", outcome)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - t0, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Loan loanPessimistic(Long copyId, String userEmail) {
+        try {
+            return loanService.loanCopy(copyId, userEmail);
+        } catch (PessimisticLockingFailureException ex) {
+            // NOWAIT lost to a concurrent borrower
+            conflicts.increment();
+            throw new IllegalStateException(BUSY, ex);
+        }
+    }
+
+    private Loan loanSingleStatement(Long copyId, String userEmail) {
+        try {
+            return loanRepository.getReferenceById(singleStatement.loanCopy(copyId, userEmail));
+        } catch (PessimisticLockingFailureException ex) {
+            // FOR UPDATE NOWAIT inside the statement
+            conflicts.increment();
+            throw new IllegalStateException(BUSY, ex);
+        }
+    }
+
+    private Loan loanOptimistic(Long copyId, String userEmail) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return loanService.loanCopyIfUnchanged(copyId, userEmail);
+            } catch (OptimisticLockingFailureException | DataIntegrityViolationException ex) {
+                conflicts.increment();
+                if (attempt >= maxAttempts) {
+                    throw new IllegalStateException(BUSY, ex);
+                }
+                retries.increment();
+                backoff(attempt);
+            }
+        }
+    }
+
+    // Full jitter: uniform in [0, min(cap, base * 2^(attempt-1))] so colliding borrowers spread out
+    private void backoff(int attempt) {
+        long ceiling = Math.min(maxBackoffMs, backoffMs << Math.min(attempt - 1, 20));
+        if (ceiling <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(BUSY, ex);
+        }
+    }
+}
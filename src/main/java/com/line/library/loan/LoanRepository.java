@@ -23,6 +23,30 @@ public interface LoanRepository extends JpaRepository<Loan, Long> {
 
     long countByUserAndCopyBookTypeAndReturnedAtIsNull(User user, BookType type);
 
+    // Both limit counts in one query (batch checkout)
+    @Query("select c.book.type as type, count(l) as loans from Loan l join l.copy c " +
+           "where l.user = :user and l.returnedAt is null group by c.book.type")
+    List<ActiveLoanCount> countActiveByType(@Param("user") User user);
+
+    interface ActiveLoanCount {
+        BookType getType();
+        long getLoans();
+    }
+
+    // Active loans for every user, for the counter reconciliation
+    @Query("select l.user.id as userId, c.book.type as type, count(l) as loans from Loan l join l.copy c " +
+           "where l.returnedAt is null group by l.user.id, c.book.type")
+    List<UserActiveLoanCount> countActiveByUserAndType();
+
+    interface UserActiveLoanCount {
+        Long getUserId();
+        BookType getType();
+        long getLoans();
+    }
+
+    @Query("select l.copy.id from Loan l where l.copy.id in :copyIds and l.returnedAt is null")
+    List<Long> findActiveCopyIds(@Param("copyIds") java.util.Collection<Long> copyIds);
+
     // Scheduler helper: loans due on a target day, not returned, and not yet notified (paged)
     Slice<Loan> findByReturnedAtIsNullAndDueAtBetweenAndDueNoticeSentAtIsNull(
         Instant startInclusive,
@@ -42,6 +66,15 @@ public interface LoanRepository extends JpaRepository<Loan, Long> {
         Pageable pageable
     );
 
+    // Lifetime loan count per book; used as popularity for typeahead ranking
+    @Query("select c.book.id as bookId, count(l) as loans from Loan l join l.copy c group by c.book.id")
+    List<BookLoanCount> countLoansByBook();
+
+    interface BookLoanCount {
+        Long getBookId();
+        long getLoans();
+    }
+
     // Bulk update to mark notifications as sent
     @Modifying(clearAutomatically = true, flushAutomatically = true)
     @Transactional
@@ -1,14 +1,34 @@
 package com.line.library.loan;
 
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.line.library.book.BookType;
 import com.line.library.copy.BookCopy;
 import com.line.library.copy.BookCopyRepository;
+import com.line.library.hold.Hold;
+import com.line.library.hold.HoldService;
+import com.line.library.outbox.Outbox;
+import com.line.library.outbox.OutboxEventType;
 import com.line.library.user.User;
 import com.line.library.user.UserRepository;
 
@@ -17,42 +37,60 @@ public class LoanService {
 
     public static final int MAX_ACTIVE_BOOKS = 5;
     public static final int MAX_ACTIVE_PUBLICATIONS = 10;
+    // Nothing past both limits combined could succeed
+    public static final int MAX_BATCH_COPIES = MAX_ACTIVE_BOOKS + MAX_ACTIVE_PUBLICATIONS;
+
+    private static final String INSERT_LOAN_SQL =
+            "insert into loans (user_id, copy_id, loaned_at, due_at) values (?, ?, ?, ?)";
 
     private final LoanRepository loanRepository;
     private final BookCopyRepository copyRepository;
     private final UserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ActiveLoanCounters counters;
+    private final HoldService holds;
+    private final Outbox outbox;
 
     public LoanService(LoanRepository loanRepository,
                          BookCopyRepository copyRepository,
-                         UserRepository userRepository) {
+                         UserRepository userRepository,
+                         JdbcTemplate jdbcTemplate,
+                         ActiveLoanCounters counters,
+                         HoldService holds,
+                         Outbox outbox) {
         this.loanRepository = loanRepository;
         this.copyRepository = copyRepository;
         this.userRepository = userRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.counters = counters;
+        this.holds = holds;
+        this.outbox = outbox;
     }
 
     @Transactional
     public Loan loanCopy(Long copyId, String userEmail) {
         User user = userRepository.findByEmail(userEmail).orElseThrow();
         BookCopy copy = copyRepository.findByIdForUpdate(copyId).orElseThrow();
+        return loanLocked(user, copy);
+    }
+
+    // The borrower does not pick the copy: any free one at the library (see findFreeForUpdateSkipLocked)
+    @Transactional
+    public Loan loanAnyCopy(Long bookId, Long libraryId, String userEmail) {
+        User user = userRepository.findByEmail(userEmail).orElseThrow();
+        BookCopy copy = copyRepository.findFreeForUpdateSkipLocked(bookId, libraryId)
+                .orElseThrow(() -> new IllegalStateException("No copy is available at this library"));
+        return loanLocked(user, copy);
+    }
 
+    private Loan loanLocked(User user, BookCopy copy) {
         if (copy.getCurrentLoanId() != null || loanRepository.existsByCopyAndReturnedAtIsNull(copy)) {
             throw new IllegalStateException("Copy is already loaned");
         }
+        // Picking up a copy set aside for this user fulfils the hold; anyone else is turned away
+        holds.checkHold(user, copy).ifPresent(holds::fulfil);
 
-        BookType type = copy.getBook().getType();
-        if (type == BookType.BOOK) {
-            long activeBooks = loanRepository.countByUserAndCopyBookTypeAndReturnedAtIsNull(user, BookType.BOOK);
-            if (activeBooks >= MAX_ACTIVE_BOOKS) {
-                throw new IllegalStateException(String.format(
-                        "Borrowing limit reached: max %d books", MAX_ACTIVE_BOOKS));
-            }
-        } else if (type == BookType.PUBLICATION) {
-            long activePubs = loanRepository.countByUserAndCopyBookTypeAndReturnedAtIsNull(user, BookType.PUBLICATION);
-            if (activePubs >= MAX_ACTIVE_PUBLICATIONS) {
-                throw new IllegalStateException(String.format(
-                        "Borrowing limit reached: max %d publications", MAX_ACTIVE_PUBLICATIONS));
-            }
-        }
+        reserveSlot(user, copy);
 
         Loan loan = new Loan();
         loan.setUser(user);
@@ -62,11 +100,179 @@ public class LoanService {
         Loan saved = loanRepository.save(loan);
 
         copy.setCurrentLoanId(saved.getId());
+        copy.setHoldId(null);
         copyRepository.save(copy);
+        loanCreated(saved.getId(), user, copy, saved.getDueAt());
 
         return saved;
     }
 
+    /**
+     * Optimistic variant of {@link #loanCopy}: reads the copy without a lock
+     * and claims it with a conditional update on its version. Throws
+     * OptimisticLockingFailureException when another transaction changed the
+     * copy in between, rolling back the loan; {@link LoanCheckout} retries.
+     */
+    @Transactional
+    public Loan loanCopyIfUnchanged(Long copyId, String userEmail) {
+        User user = userRepository.findByEmail(userEmail).orElseThrow();
+        BookCopy copy = copyRepository.findById(copyId).orElseThrow();
+
+        if (copy.getCurrentLoanId() != null) {
+            throw new IllegalStateException("Copy is already loaned");
+        }
+        // Read at the version the claim checks, so the hold cannot change underneath
+        Optional<Hold> ownHold = holds.checkHold(user, copy);
+
+        Loan loan = new Loan();
+        loan.setUser(user);
+        loan.setCopy(copy);
+        loan.setLoanedAt(Instant.now());
+        loan.setDueAt(Instant.now().plus(30, ChronoUnit.DAYS));
+        // A concurrent loan of the same copy fails here on uq_loans_active_copy once its transaction commits
+        Loan saved = loanRepository.save(loan);
+
+        if (copyRepository.claimIfUnchanged(copyId, copy.getVersion(), saved.getId()) == 0) {
+            throw new ObjectOptimisticLockingFailureException(BookCopy.class, copyId);
+        }
+        // After the copy row, as on the locking paths, so the two row locks are always taken in the same order
+        reserveSlot(user, copy);
+        ownHold.ifPresent(holds::fulfil);
+        loanCreated(saved.getId(), user, copy, saved.getDueAt());
+        return saved;
+    }
+
+    /**
+     * Loans several copies to one user in a single transaction, reporting
+     * each copy separately (in request order) instead of failing the batch.
+     * The copies are locked in id order, then the user's counter row; the
+     * remaining limit is consumed in request order, and the loans go in as
+     * one JDBC batch.
+     */
+    @Transactional
+    public List<CheckoutOutcome> loanCopies(List<Long> copyIds, String userEmail) {
+        if (copyIds.size() > MAX_BATCH_COPIES) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_COPIES + " copies per checkout");
+        }
+        User user = userRepository.findByEmail(userEmail).orElseThrow();
+        List<Long> requested = List.copyOf(new LinkedHashSet<>(copyIds));
+
+        Map<Long, BookCopy> locked = new HashMap<>();
+        for (BookCopy c : copyRepository.findAllByIdForUpdate(requested)) {
+            locked.put(c.getId(), c);
+        }
+        Set<Long> onLoan = locked.isEmpty() ? Set.of() : new HashSet<>(loanRepository.findActiveCopyIds(locked.keySet()));
+        UserLoanCounter counter = counters.lock(user);
+        Map<BookType, Long> active = new EnumMap<>(BookType.class);
+        for (BookType type : BookType.values()) {
+            active.put(type, counter.get(type));
+        }
+
+        CheckoutOutcome[] outcomes = new CheckoutOutcome[requested.size()];
+        List<Integer> slots = new ArrayList<>();
+        List<BookCopy> toLoan = new ArrayList<>();
+        List<Hold> pickedUp = new ArrayList<>();
+        for (int i = 0; i < requested.size(); i++) {
+            long copyId = requested.get(i);
+            BookCopy copy = locked.get(copyId);
+            String error;
+            Optional<Hold> hold = copy != null ? holds.readyHold(copy) : Optional.empty();
+            if (copy == null) {
+                error = "Copy not found";
+            } else if (copy.getCurrentLoanId() != null || onLoan.contains(copyId)) {
+                error = "Copy is already loaned";
+            } else if (hold.isPresent() && !hold.get().getUser().getId().equals(user.getId())) {
+                error = HoldService.ON_HOLD;
+            } else {
+                BookType type = copy.getBook().getType();
+                error = type != null ? limitError(type, active.getOrDefault(type, 0L)) : null;
+                if (error == null && type != null) {
+                    active.merge(type, 1L, Long::sum);
+                }
+            }
+            if (error != null) {
+                outcomes[i] = CheckoutOutcome.failed(copyId, error);
+            } else {
+                hold.ifPresent(pickedUp::add);
+                slots.add(i);
+                toLoan.add(copy);
+            }
+        }
+
+        if (!toLoan.isEmpty()) {
+            Instant loanedAt = Instant.now();
+            List<Long> loanIds = insertLoans(user, toLoan, loanedAt);
+            for (int j = 0; j < toLoan.size(); j++) {
+                // Flushed with the transaction; the locked copies are managed entities
+                toLoan.get(j).setCurrentLoanId(loanIds.get(j));
+                toLoan.get(j).setHoldId(null);
+                outcomes[slots.get(j)] = CheckoutOutcome.loaned(toLoan.get(j).getId(), loanIds.get(j));
+                loanCreated(loanIds.get(j), user, toLoan.get(j), dueAt(loanedAt));
+            }
+            active.forEach(counter::set);
+            pickedUp.forEach(holds::fulfil);
+        }
+        return List.of(outcomes);
+    }
+
+    // Loans has an identity key, which turns off Hibernate's insert batching; plain JDBC keeps it one batch
+    private List<Long> insertLoans(User user, List<BookCopy> copies, Instant loanedAt) {
+        Timestamp loaned = Timestamp.from(loanedAt);
+        Timestamp due = Timestamp.from(dueAt(loanedAt));
+        GeneratedKeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_LOAN_SQL, new String[] {"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        ps.setLong(1, user.getId());
+                        ps.setLong(2, copies.get(i).getId());
+                        ps.setTimestamp(3, loaned);
+                        ps.setTimestamp(4, due);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return copies.size();
+                    }
+                }, keys);
+        return keys.getKeyList().stream()
+                .map(k -> ((Number) k.values().iterator().next()).longValue())
+                .toList();
+    }
+
+    private static Instant dueAt(Instant loanedAt) {
+        return loanedAt.plus(30, ChronoUnit.DAYS);
+    }
+
+    // In the loan's transaction, so the event exists exactly when the loan does
+    private void loanCreated(long loanId, User user, BookCopy copy, Instant dueAt) {
+        outbox.append(OutboxEventType.LOAN_CREATED, loanId, Map.of(
+                "userId", user.getId(),
+                "copyId", copy.getId(),
+                "bookId", copy.getBook().getId(),
+                "dueAt", dueAt.toString()));
+    }
+
+    // One conditional increment on the user's counter row instead of counting their loans
+    private void reserveSlot(User user, BookCopy copy) {
+        BookType type = copy.getBook().getType();
+        if (type != null && !counters.tryIncrement(user, copy)) {
+            throw new IllegalStateException(limitMessage(type));
+        }
+    }
+
+    // Message for a loan that would exceed the user's limit for this type, or null
+    private static String limitError(BookType type, long active) {
+        long max = type == BookType.PUBLICATION ? MAX_ACTIVE_PUBLICATIONS : MAX_ACTIVE_BOOKS;
+        return active >= max ? limitMessage(type) : null;
+    }
+
+    static String limitMessage(BookType type) {
+        return type == BookType.PUBLICATION
+                ? String.format("Borrowing limit reached: max %d publications", MAX_ACTIVE_PUBLICATIONS)
+                : String.format("Borrowing limit reached: max %d books", MAX_ACTIVE_BOOKS);
+    }
+
     @Transactional
     public Loan returnLoan(Long loanId, String userEmail) {
         Loan loan = loanRepository.findById(loanId).orElseThrow();
@@ -87,7 +293,17 @@ public class LoanService {
         if (copy.getCurrentLoanId() != null && copy.getCurrentLoanId().equals(saved.getId())) {
             copy.setCurrentLoanId(null);
             copyRepository.save(copy);
+            // Straight to the next member waiting for the book, in this transaction
+            holds.offer(copy);
+        }
+        if (copy.getBook().getType() != null) {
+            counters.decrement(loan.getUser(), copy.getBook().getType());
         }
+        outbox.append(OutboxEventType.LOAN_RETURNED, saved.getId(), Map.of(
+                "userId", loan.getUser().getId(),
+                "copyId", copy.getId(),
+                "bookId", copy.getBook().getId(),
+                "returnedAt", saved.getReturnedAt().toString()));
 
         return saved;
     }
@@ -0,0 +1,17 @@
+package com.line.library.loan;
+
+// Result for one copy of a bulk return: the loan it closed, or why nothing was returned
+public record ReturnOutcome(long copyId, Long loanId, String error) {
+
+    public static ReturnOutcome returned(long copyId, long loanId) {
+        return new ReturnOutcome(copyId, loanId, null);
+    }
+
+    public static ReturnOutcome failed(long copyId, String error) {
+        return new ReturnOutcome(copyId, null, error);
+    }
+
+    public boolean isReturned() {
+        return loanId != null;
+    }
+}
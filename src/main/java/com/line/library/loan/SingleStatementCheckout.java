@@ -0,0 +1,141 @@
+package com.line.library.loan;
+
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.line.library.book.BookType;
+import com.line.library.hold.HoldService;
+
+/**
+ * Checkout as one PostgreSQL statement (app.loan.checkout-mode=SINGLE_STATEMENT):
+ * a data-modifying CTE locks the copy (NOWAIT), checks it is free (or set
+ * aside for this user's hold), takes a limit slot from user_loan_counters,
+ * inserts the loan, points the copy at it, fulfils the hold and appends
+ * the LOAN_CREATED outbox event, then reports which step stopped it. Runs in autocommit, so the
+ * whole checkout is one round trip instead of about six through JPA.
+ *
+ * Failures map to the same exceptions as {@link LoanService#loanCopy}. A
+ * user without a counter row yet costs one extra statement to create it.
+ * scripts/bench_checkout.py compares the two paths.
+ */
+@Component
+public class SingleStatementCheckout {
+
+    static final String CHECKOUT_SQL = """
+        with u as (
+          select id from users where email = :email
+        ), c as (
+          select bc.id, bc.current_loan_id, bc.hold_id, cast(b.type as text) as type
+          from book_copies bc join books b on b.id = bc.book_id
+          where bc.id = :copyId
+          for update of bc nowait
+        ), held as (
+          -- Set aside for another member's hold
+          select h.id from c join holds h on h.id = c.hold_id
+          where h.status = 'READY' and h.user_id is distinct from (select id from u)
+        ), free as (
+          select c.id, c.type from c
+          where c.current_loan_id is null
+            and not exists (select 1 from held)
+            and not exists (select 1 from loans l where l.copy_id = c.id and l.returned_at is null)
+        ), slot as (
+          update user_loan_counters k
+          set active_books = k.active_books + case when f.type = 'BOOK' then 1 else 0 end,
+              active_publications = k.active_publications + case when f.type = 'PUBLICATION' then 1 else 0 end
+          from free f, u
+          where k.user_id = u.id
+            and case f.type
+                  when 'BOOK' then k.active_books < :maxBooks
+                  when 'PUBLICATION' then k.active_publications < :maxPublications
+                  else true
+                end
+          returning k.user_id
+        ), loan as (
+          insert into loans (user_id, copy_id, loaned_at, due_at)
+          select slot.user_id, free.id, now(), now() + interval '30 days'
+          from slot, free
+          returning id, user_id, copy_id, due_at
+        ), claim as (
+          update book_copies bc
+          set current_loan_id = loan.id, hold_id = null, version = bc.version + 1
+          from loan
+          where bc.id = loan.copy_id
+          returning loan.id
+        ), picked_up as (
+          update holds h
+          set status = 'FULFILLED', closed_at = now()
+          from c, claim
+          where h.id = c.hold_id and h.status = 'READY'
+        ), event as (
+          -- Same payload as LoanService appends through Outbox
+          insert into outbox_events (recorded_at, aggregate_type, aggregate_id, event_type, payload)
+          select now(), 'loan', loan.id, 'LOAN_CREATED',
+                 json_build_object('userId', loan.user_id, 'copyId', loan.copy_id, 'bookId', bc.book_id,
+                                   'dueAt', to_char(loan.due_at at time zone 'UTC', 'YYYY-MM-DD"T"HH24:MI:SS.US"Z"'))::text
+          from loan join book_copies bc on bc.id = loan.copy_id
+        )
+        select (select id from u) as user_id,
+               (select type from c) as type,
+               exists (select 1 from free) as copy_free,
+               exists (select 1 from held) as held,
+               exists (select 1 from user_loan_counters k join u on k.user_id = u.id) as has_counter,
+               (select id from claim) as loan_id
+        """;
+
+    // Same values as ActiveLoanCounters.recount; a concurrent first loan that got there first wins
+    static final String CREATE_COUNTER_SQL = """
+        insert into user_loan_counters (user_id, active_books, active_publications)
+        select u.id,
+               count(*) filter (where b.type = 'BOOK'),
+               count(*) filter (where b.type = 'PUBLICATION')
+        from users u
+        left join loans l on l.user_id = u.id and l.returned_at is null
+        left join book_copies bc on bc.id = l.copy_id
+        left join books b on b.id = bc.book_id
+        where u.email = :email
+        group by u.id
+        on conflict (user_id) do nothing
+        """;
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    public SingleStatementCheckout(NamedParameterJdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    // Id of the new loan
+    public long loanCopy(long copyId, String userEmail) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("copyId", copyId)
+                .addValue("email", userEmail)
+                .addValue("maxBooks", LoanService.MAX_ACTIVE_BOOKS)
+                .addValue("maxPublications", LoanService.MAX_ACTIVE_PUBLICATIONS);
+        Map<String, Object> row = jdbc.queryForMap(CHECKOUT_SQL, params);
+        if (row.get("loan_id") == null && Boolean.TRUE.equals(row.get("copy_free"))
+                && row.get("user_id") != null && !Boolean.TRUE.equals(row.get("has_counter"))) {
+            // First loan of this user: create the counter row (before the loan, so it is not counted twice) and retry
+            jdbc.update(CREATE_COUNTER_SQL, params);
+            row = jdbc.queryForMap(CHECKOUT_SQL, params);
+        }
+        Object loanId = row.get("loan_id");
+        if (loanId != null) {
+            return ((Number) loanId).longValue();
+        }
+        if (row.get("user_id") == null) {
+            throw new NoSuchElementException("No user " + userEmail);
+        }
+        if (row.get("type") == null) {
+            throw new NoSuchElementException("No copy " + copyId);
+        }
+        if (!Boolean.TRUE.equals(row.get("copy_free"))) {
+            throw new IllegalStateException(Boolean.TRUE.equals(row.get("held"))
+                    ? HoldService.ON_HOLD : "Copy is already loaned");
+        }
+        BookType type = BookType.valueOf((String) row.get("type"));
+        throw new IllegalStateException(LoanService.limitMessage(type));
+    }
+}
@@ -0,0 +1,56 @@
+package com.line.library.loan;
+
+import com.line.library.book.BookType;
+
+import jakarta.persistence.*;
+
+// Active (unreturned) loans per user and type, kept in step with loans/returns so limit checks need no count query
+@Entity
+@Table(name = "user_loan_counters")
+public class UserLoanCounter {
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "active_books", nullable = false)
+    private long activeBooks;
+
+    @Column(name = "active_publications", nullable = false)
+    private long activePublications;
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public long getActiveBooks() {
+        return activeBooks;
+    }
+
+    public void setActiveBooks(long activeBooks) {
+        this.activeBooks = activeBooks;
+    }
+
+    public long getActivePublications() {
+        return activePublications;
+    }
+
+    public void setActivePublications(long activePublications) {
+        this.activePublications = activePublications;
+    }
+
+    public long get(BookType type) {
+        return type == BookType.PUBLICATION ? activePublications : activeBooks;
+    }
+
+    public void set(BookType type, long value) {
+        if (type == BookType.PUBLICATION) {
+            activePublications = value;
+        } else {
+            activeBooks = value;
+        }
+    }
+}
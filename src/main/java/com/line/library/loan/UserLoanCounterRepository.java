@@ -0,0 +1,61 @@
+package com.line.library.loan;
+
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import jakarta.persistence.LockModeType;
+
+public interface UserLoanCounterRepository extends JpaRepository<UserLoanCounter, Long> {
+
+    // Limit check and reservation in one statement: 1 row when under :max, 0 when the limit is reached.
+    // The row lock it takes serializes one user's concurrent checkouts until commit.
+    @Modifying(flushAutomatically = true)
+    @Query("""
+        update UserLoanCounter c set c.activeBooks = c.activeBooks + 1
+        where c.userId = :userId and c.activeBooks < :max
+        """)
+    int incrementBooks(@Param("userId") Long userId, @Param("max") long max);
+
+    @Modifying(flushAutomatically = true)
+    @Query("""
+        update UserLoanCounter c set c.activePublications = c.activePublications + 1
+        where c.userId = :userId and c.activePublications < :max
+        """)
+    int incrementPublications(@Param("userId") Long userId, @Param("max") long max);
+
+    @Modifying(flushAutomatically = true)
+    @Query("""
+        update UserLoanCounter c set c.activeBooks = c.activeBooks - 1
+        where c.userId = :userId and c.activeBooks > 0
+        """)
+    int decrementBooks(@Param("userId") Long userId);
+
+    @Modifying(flushAutomatically = true)
+    @Query("""
+        update UserLoanCounter c set c.activePublications = c.activePublications - 1
+        where c.userId = :userId and c.activePublications > 0
+        """)
+    int decrementPublications(@Param("userId") Long userId);
+
+    // 0 when the row already exists, including one a concurrent first loan inserted and has not committed yet:
+    // the insert waits for that transaction instead of failing on the primary key. No conflict target, so the
+    // embedded database accepts it too (H2 in PostgreSQL mode); user_id is the only unique key.
+    @Modifying
+    @Query(value = """
+        insert into user_loan_counters (user_id, active_books, active_publications)
+        values (:userId, :books, :publications)
+        on conflict do nothing
+        """, nativeQuery = true)
+    int insertIfAbsent(@Param("userId") Long userId,
+                       @Param("books") long books,
+                       @Param("publications") long publications);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from UserLoanCounter c where c.userId = :userId")
+    Optional<UserLoanCounter> findByIdForUpdate(@Param("userId") Long userId);
+}
@@ -0,0 +1,41 @@
+package com.line.library.notification;
+
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.line.library.outbox.OutboxEvent;
+import com.line.library.outbox.OutboxEventType;
+import com.line.library.outbox.OutboxSubscriber;
+
+// Tells a member their hold is ready, off the return's request thread; delivered through the outbox
+@Component
+public class HoldReadyNotifier implements OutboxSubscriber {
+
+    private final ObjectMapper objectMapper;
+
+    public HoldReadyNotifier(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public String name() {
+        return "hold-ready-notifier";
+    }
+
+    @Override
+    public void handle(OutboxEvent event) {
+        if (event.getEventType() != OutboxEventType.HOLD_READY) {
+            return;
+        }
+        JsonNode p;
+        try {
+            p = objectMapper.readTree(event.getPayload());
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Unreadable payload in outbox event " + event.getId(), ex);
+        }
+        System.out.println("[HoldReady] Notify " + p.path("email").asText() + ": '" + p.path("title").asText()
+                + "' ready at " + p.path("library").asText() + " until " + p.path("expiresAt").asText());
+    }
+}
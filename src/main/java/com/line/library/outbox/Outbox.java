@@ -0,0 +1,49 @@
+package com.line.library.outbox;
+
+import java.util.Map;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Records an event in outbox_events as part of the caller's transaction,
+ * so it exists exactly when the change it describes has committed.
+ * {@link OutboxRelay} delivers it to the subscribers afterwards.
+ *
+ * recorded_at is the database's transaction time, like the events the
+ * single-statement checkout and bulk return insert; tx_id is filled by
+ * its column default.
+ */
+@Component
+public class Outbox {
+
+    private static final String INSERT_SQL = """
+        insert into outbox_events (recorded_at, aggregate_type, aggregate_id, event_type, payload)
+        values (current_timestamp, ?, ?, ?, ?)
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public Outbox(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    // Payload values should be plain (strings, numbers, Instant.toString()), so subscribers need no type info
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(OutboxEventType type, long aggregateId, Map<String, ?> payload) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalArgumentException("Outbox payload is not serializable: " + payload, ex);
+        }
+        jdbcTemplate.update(INSERT_SQL, type.aggregateType(), aggregateId, type.name(), json);
+    }
+}
@@ -0,0 +1,68 @@
+package com.line.library.outbox;
+
+import java.time.Instant;
+
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.Immutable;
+
+import jakarta.persistence.*;
+
+// One row of the append-only outbox; written by Outbox, read by OutboxRelay
+@Entity
+@Immutable
+@Table(name = "outbox_events")
+public class OutboxEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Id of the writing transaction (pg_current_xact_id() on PostgreSQL, see schema.sql); relay order is (txId, id)
+    @ColumnDefault("0")
+    @Column(nullable = false, insertable = false, updatable = false)
+    private long txId;
+
+    @Column(nullable = false)
+    private Instant recordedAt;
+
+    @Column(nullable = false)
+    private String aggregateType;
+
+    @Column(nullable = false)
+    private Long aggregateId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private OutboxEventType eventType;
+
+    // JSON object; see the Outbox callers for the fields of each type
+    @Column(nullable = false, columnDefinition = "text")
+    private String payload;
+
+    public Long getId() {
+        return id;
+    }
+
+    public long getTxId() {
+        return txId;
+    }
+
+    public Instant getRecordedAt() {
+        return recordedAt;
+    }
+
+    public String getAggregateType() {
+        return aggregateType;
+    }
+
+    public Long getAggregateId() {
+        return aggregateId;
+    }
+
+    public OutboxEventType getEventType() {
+        return eventType;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+}
@@ -0,0 +1,35 @@
+package com.line.library.outbox;
+
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    // Keyset page on (txId, id) after the saved position, limited to transactions below the horizon
+    @Query("""
+        select e from OutboxEvent e
+        where (e.txId > :afterTxId or (e.txId = :afterTxId and e.id > :afterId))
+          and e.txId < :horizon
+        order by e.txId, e.id
+        """)
+    List<OutboxEvent> findBatch(@Param("afterTxId") long afterTxId,
+                                @Param("afterId") long afterId,
+                                @Param("horizon") long horizon,
+                                Limit limit);
+
+    // Age is measured on the database clock, the one recorded_at is written with
+    @Modifying
+    @Query("""
+        delete from OutboxEvent e
+        where (e.txId < :upToTxId or (e.txId = :upToTxId and e.id <= :upToId))
+          and e.recordedAt <= current_instant - (:retentionSeconds) second
+        """)
+    int deleteDelivered(@Param("upToTxId") long upToTxId,
+                        @Param("upToId") long upToId,
+                        @Param("retentionSeconds") long retentionSeconds);
+}
@@ -0,0 +1,21 @@
+package com.line.library.outbox;
+
+// What an outbox event records, and the kind of row its aggregate id refers to
+public enum OutboxEventType {
+    LOAN_CREATED("loan"),
+    LOAN_RETURNED("loan"),
+    HOLD_READY("hold"),
+    BOOK_CREATED("book"),
+    BOOK_UPDATED("book"),
+    COPY_ADDED("copy");
+
+    private final String aggregateType;
+
+    OutboxEventType(String aggregateType) {
+        this.aggregateType = aggregateType;
+    }
+
+    public String aggregateType() {
+        return aggregateType;
+    }
+}
@@ -0,0 +1,50 @@
+package com.line.library.outbox;
+
+import java.time.Instant;
+
+import jakarta.persistence.*;
+
+// How far one subscriber has got through the outbox: the (transaction id, event id) of the last event it handled
+@Entity
+@Table(name = "outbox_offsets")
+public class OutboxOffset {
+    @Id
+    private String subscriber;
+
+    @Column(nullable = false)
+    private long lastTxId;
+
+    @Column(nullable = false)
+    private long lastId;
+
+    private Instant updatedAt;
+
+    protected OutboxOffset() {
+    }
+
+    OutboxOffset(String subscriber) {
+        this.subscriber = subscriber;
+    }
+
+    public String getSubscriber() {
+        return subscriber;
+    }
+
+    public long getLastTxId() {
+        return lastTxId;
+    }
+
+    public long getLastId() {
+        return lastId;
+    }
+
+    public void setPosition(long lastTxId, long lastId) {
+        this.lastTxId = lastTxId;
+        this.lastId = lastId;
+        this.updatedAt = Instant.now();
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+}
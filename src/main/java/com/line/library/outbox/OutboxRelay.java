@@ -0,0 +1,162 @@
+package com.line.library.outbox;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Polls outbox_events and hands new events to every {@link OutboxSubscriber}.
+ *
+ * Each subscriber has its own row in outbox_offsets. A poll locks that row
+ * (SKIP LOCKED, so one node at a time serves a subscriber), reads batches
+ * of batch-size events after the saved id by keyset, hands them over in
+ * order and saves the id of the last one handled, all in one transaction.
+ * A failing event ends the subscriber's turn; it is retried from there on
+ * the next poll, and a crash before the commit repeats the whole turn.
+ *
+ * Ids are taken at insert, so a transaction can commit after one with a
+ * higher id, and an offset on the id alone could pass an event that is
+ * not visible yet. Events are therefore read in (tx_id, id) order and only
+ * below the horizon: the oldest transaction id still running on
+ * PostgreSQL (pg_snapshot_xmin). Every writer below it has committed or
+ * rolled back, and every writer still to commit has a tx_id at or above
+ * it, so the offset never passes an event that may still appear. A
+ * long-running transaction anywhere in the database delays delivery
+ * until it ends; it does not drop events.
+ * Set app.outbox.relay.enabled=false to leave delivery to other nodes.
+ */
+@Component
+@ConditionalOnProperty(name = "app.outbox.relay.enabled", havingValue = "true", matchIfMissing = true)
+public class OutboxRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+    private static final String HORIZON_SQL = "select pg_snapshot_xmin(pg_current_snapshot())::text::bigint";
+    private static final Comparator<OutboxOffset> POSITION =
+            Comparator.comparingLong(OutboxOffset::getLastTxId).thenComparingLong(OutboxOffset::getLastId);
+
+    private final List<OutboxSubscriber> subscribers;
+    private final OutboxEventRepository eventRepository;
+    private final OutboxOffsetRepository offsetRepository;
+    private final TransactionTemplate tx;
+    private final MeterRegistry meterRegistry;
+    private final int batchSize;
+    private final int maxBatches;
+    private final Duration retention;
+    private final LongSupplier horizon;
+
+    @Autowired
+    public OutboxRelay(List<OutboxSubscriber> subscribers,
+                       OutboxEventRepository eventRepository,
+                       OutboxOffsetRepository offsetRepository,
+                       PlatformTransactionManager transactionManager,
+                       MeterRegistry meterRegistry,
+                       JdbcTemplate jdbcTemplate,
+                       @Value("${app.outbox.batch-size:200}") int batchSize,
+                       @Value("${app.outbox.max-batches:10}") int maxBatches,
+                       @Value("${app.outbox.retention:7d}") Duration retention) {
+        this(subscribers, eventRepository, offsetRepository, transactionManager, meterRegistry,
+                () -> jdbcTemplate.queryForObject(HORIZON_SQL, Long.class),
+                batchSize, maxBatches, retention);
+    }
+
+    OutboxRelay(List<OutboxSubscriber> subscribers,
+                OutboxEventRepository eventRepository,
+                OutboxOffsetRepository offsetRepository,
+                PlatformTransactionManager transactionManager,
+                MeterRegistry meterRegistry,
+                LongSupplier horizon,
+                int batchSize,
+                int maxBatches,
+                Duration retention) {
+        this.subscribers = subscribers;
+        this.eventRepository = eventRepository;
+        this.offsetRepository = offsetRepository;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.horizon = horizon;
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+        this.retention = retention;
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.poll-ms:1000}")
+    public void poll() {
+        for (OutboxSubscriber subscriber : subscribers) {
+            try {
+                tx.executeWithoutResult(status -> relay(subscriber));
+            } catch (RuntimeException ex) {
+                // E.g. two nodes creating the same offset row; the next poll finds it
+                log.warn("Outbox relay to {} failed", subscriber.name(), ex);
+            }
+        }
+    }
+
+    // Events handed to the subscriber in this turn (including a failed one)
+    int relay(OutboxSubscriber subscriber) {
+        String name = subscriber.name();
+        Optional<OutboxOffset> locked = offsetRepository.findByIdForUpdate(name);
+        if (locked.isEmpty() && offsetRepository.existsById(name)) {
+            return 0;
+        }
+        OutboxOffset offset = locked.orElseGet(() -> offsetRepository.save(new OutboxOffset(name)));
+
+        // Taken before the batches are read, so every transaction below it is visible to them
+        long below = horizon.getAsLong();
+        int handled = 0;
+        for (int b = 0; b < maxBatches; b++) {
+            List<OutboxEvent> batch = eventRepository.findBatch(
+                    offset.getLastTxId(), offset.getLastId(), below, Limit.of(batchSize));
+            for (OutboxEvent event : batch) {
+                handled++;
+                try {
+                    subscriber.handle(event);
+                } catch (RuntimeException ex) {
+                    meterRegistry.counter("outbox.failures", "subscriber", name).increment();
+                    log.warn("Subscriber {} failed on outbox event {} ({}); retrying on the next poll",
+                            name, event.getId(), event.getEventType(), ex);
+                    return handled;
+                }
+                // Flushed with the transaction, together with whatever the subscriber wrote
+                offset.setPosition(event.getTxId(), event.getId());
+                meterRegistry.counter("outbox.dispatched", "subscriber", name).increment();
+            }
+            if (batch.size() < batchSize) {
+                break;
+            }
+        }
+        return handled;
+    }
+
+    // The table is append-only for writers; rows every subscriber is past go once older than the retention
+    @Scheduled(fixedDelayString = "${app.outbox.prune-ms:3600000}")
+    public void prune() {
+        tx.executeWithoutResult(status -> {
+            List<String> names = subscribers.stream().map(OutboxSubscriber::name).toList();
+            List<OutboxOffset> offsets = offsetRepository.findAllById(names);
+            if (offsets.isEmpty() || offsets.size() < names.size()) {
+                return;
+            }
+            OutboxOffset delivered = offsets.stream().min(POSITION).orElseThrow();
+            int deleted = eventRepository.deleteDelivered(delivered.getLastTxId(), delivered.getLastId(), retention.toSeconds());
+            if (deleted > 0) {
+                log.info("Pruned {} delivered outbox events", deleted);
+            }
+        });
+    }
+}
@@ -0,0 +1,15 @@
+package com.line.library.outbox;
+
+/**
+ * Receives outbox events from {@link OutboxRelay}, in id order and at least
+ * once: an event is handed over again after a crash or a failure before its
+ * offset was saved, so handlers must be idempotent. Throwing stops this
+ * subscriber's delivery until the next poll, which starts from that event.
+ */
+public interface OutboxSubscriber {
+
+    // Key of the subscriber's row in outbox_offsets; renaming it restarts delivery from the oldest kept event
+    String name();
+
+    void handle(OutboxEvent event);
+}
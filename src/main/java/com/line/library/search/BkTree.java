@@ -0,0 +1,137 @@
+package com.line.library.search;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Burkhard-Keller tree over normalized catalog words, keyed by Levenshtein
+ * distance. A lookup within distance d only descends into children whose
+ * edge lies in [dist - d, dist + d], so a misspelled word is resolved by
+ * visiting a small fraction of the vocabulary. Each word keeps an occurrence
+ * count used to break ties between equally close candidates.
+ */
+final class BkTree {
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Node root;
+    private int size;
+
+    void add(String word) {
+        lock.writeLock().lock();
+        try {
+            if (root == null) {
+                root = new Node(word);
+                size++;
+                return;
+            }
+            Node node = root;
+            while (true) {
+                int d = distance(word, node.word, Integer.MAX_VALUE);
+                if (d == 0) {
+                    node.count++;
+                    return;
+                }
+                Node child = node.children.get(d);
+                if (child == null) {
+                    node.children.put(d, new Node(word));
+                    size++;
+                    return;
+                }
+                node = child;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    boolean contains(String word) {
+        return closest(word, 0) != null;
+    }
+
+    // Nearest word within maxDistance; ties go to the more frequent word, then alphabetical order
+    String closest(String word, int maxDistance) {
+        lock.readLock().lock();
+        try {
+            if (root == null) {
+                return null;
+            }
+            Node best = null;
+            int bestDist = maxDistance + 1;
+            Deque<Node> stack = new ArrayDeque<>();
+            stack.push(root);
+            while (!stack.isEmpty()) {
+                Node node = stack.pop();
+                int d = distance(word, node.word, Integer.MAX_VALUE);
+                if (d < bestDist || (d == bestDist && best != null && better(node, best))) {
+                    best = node;
+                    bestDist = d;
+                }
+                int radius = Math.min(maxDistance, bestDist);
+                for (Map.Entry<Integer, Node> e : node.children.entrySet()) {
+                    int edge = e.getKey();
+                    if (edge >= d - radius && edge <= d + radius) {
+                        stack.push(e.getValue());
+                    }
+                }
+            }
+            return best != null ? best.word : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static boolean better(Node a, Node b) {
+        return a.count != b.count ? a.count > b.count : a.word.compareTo(b.word) < 0;
+    }
+
+    // Two-row Levenshtein; gives up early (returning limit + 1) once every cell exceeds the limit
+    static int distance(String a, String b, int limit) {
+        if (Math.abs(a.length() - b.length()) > limit) {
+            return limit + 1;
+        }
+        int[] prev = new int[b.length() + 1];
+        int[] cur = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            prev[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            cur[0] = i;
+            int rowMin = cur[0];
+            char ca = a.charAt(i - 1);
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = ca == b.charAt(j - 1) ? 0 : 1;
+                cur[j] = Math.min(Math.min(cur[j - 1] + 1, prev[j] + 1), prev[j - 1] + cost);
+                rowMin = Math.min(rowMin, cur[j]);
+            }
+            if (rowMin > limit) {
+                return limit + 1;
+            }
+            int[] t = prev;
+            prev = cur;
+            cur = t;
+        }
+        return prev[b.length()];
+    }
+
+    private static final class Node {
+        final String word;
+        final Map<Integer, Node> children = new HashMap<>(4);
+        int count = 1;
+
+        Node(String word) {
+            this.word = word;
+        }
+    }
+}
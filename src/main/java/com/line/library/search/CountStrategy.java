@@ -0,0 +1,11 @@
+package com.line.library.search;
+
+// How the fuzzy search computes totalItems (app.search.count-strategy)
+public enum CountStrategy {
+    // count(*) over the full ILIKE predicate
+    EXACT,
+    // count stops at app.search.count-cap and renders as "1000+"
+    CAPPED,
+    // planner row estimate from EXPLAIN (pg_trgm selectivity on the GIN opclass)
+    ESTIMATED
+}
@@ -0,0 +1,49 @@
+package com.line.library.search;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.line.library.book.BookType;
+
+// Counts over the full match set of a search: publication decade and book type
+public record Facets(Map<Integer, Long> decades, long unknownYear, Map<BookType, Long> types) {
+
+    public static Counter counter() {
+        return new Counter();
+    }
+
+    // Accumulates one match (or a pre-grouped bucket) at a time
+    public static final class Counter {
+        private final TreeMap<Integer, Long> decades = new TreeMap<>();
+        private final EnumMap<BookType, Long> types = new EnumMap<>(BookType.class);
+        private long unknownYear;
+        private long total;
+
+        public void add(Integer pubYear, BookType type, long count) {
+            if (pubYear == null) {
+                unknownYear += count;
+            } else {
+                decades.merge(decadeOf(pubYear), count, Long::sum);
+            }
+            if (type != null) {
+                types.merge(type, count, Long::sum);
+            }
+            total += count;
+        }
+
+        public long total() {
+            return total;
+        }
+
+        public Facets build() {
+            return new Facets(Collections.unmodifiableMap(decades), unknownYear,
+                    Collections.unmodifiableMap(types));
+        }
+    }
+
+    public static int decadeOf(int year) {
+        return Math.floorDiv(year, 10) * 10;
+    }
+}
@@ -0,0 +1,104 @@
+package com.line.library.search;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import com.line.library.book.Book;
+import com.line.library.book.BookRepository;
+import com.line.library.book.BookSummary;
+import com.line.library.book.BookType;
+import com.line.library.search.SearchResult.TotalKind;
+
+// Default backend: pg_trgm / tsvector GIN indexes with ranking done in the database
+@Component
+@ConditionalOnProperty(name = "app.search.backend", havingValue = "postgres", matchIfMissing = true)
+public class PostgresSearchBackend implements SearchBackend {
+
+    private final BookRepository bookRepository;
+    private final SearchCountEstimator countEstimator;
+    private final CountStrategy countStrategy;
+    private final long countCap;
+
+    public PostgresSearchBackend(BookRepository bookRepository,
+                                 SearchCountEstimator countEstimator,
+                                 @Value("${app.search.count-strategy:EXACT}") CountStrategy countStrategy,
+                                 @Value("${app.search.count-cap:1000}") long countCap) {
+        this.bookRepository = bookRepository;
+        this.countEstimator = countEstimator;
+        this.countStrategy = countStrategy;
+        this.countCap = countCap;
+    }
+
+    @Override
+    public SearchResult search(SearchQuery query, Pageable pageable) {
+        String q = query.q();
+        Integer pubYear = query.pubYear();
+        Long availableAt = query.availableAt();
+        Path path = Path.of(query);
+        int size = pageable.getPageSize();
+        long offset = pageable.getOffset();
+        if (countStrategy == CountStrategy.EXACT) {
+            // The facet group-by replaces count(*): same two round trips, and the buckets sum to the total
+            List<BookSummary> content = window(path, q, pubYear, availableAt, size, offset);
+            List<BookRepository.FacetBucket> buckets = switch (path) {
+                case CJK -> bookRepository.facetCjk(q, pubYear, availableAt);
+                case HYBRID -> bookRepository.facetHybrid(q, pubYear, availableAt);
+                case TRIGRAM -> bookRepository.facetFuzzyAny(q, pubYear, availableAt);
+            };
+            Facets.Counter facets = Facets.counter();
+            for (BookRepository.FacetBucket b : buckets) {
+                facets.add(b.getDecade(), b.getType() != null ? BookType.valueOf(b.getType()) : null, b.getBooks());
+            }
+            return SearchResult.exact(new PageImpl<>(content, pageable, facets.total()), facets.build());
+        }
+
+        // Fetch the page plus one row; the total is then only needed when more rows exist
+        List<BookSummary> rows = window(path, q, pubYear, availableAt, size + 1, offset);
+        boolean hasNext = rows.size() > size;
+        List<BookSummary> content = hasNext ? rows.subList(0, size) : rows;
+        long seen = offset + content.size() + (hasNext ? 1 : 0);
+
+        if (!hasNext) {
+            return new SearchResult(new PageImpl<>(content, pageable, seen), TotalKind.EXACT, false);
+        }
+        if (countStrategy == CountStrategy.CAPPED) {
+            long cap = Math.max(countCap, seen);
+            long counted = switch (path) {
+                case CJK -> bookRepository.countCjkCapped(q, pubYear, availableAt, cap + 1);
+                case HYBRID -> bookRepository.countHybridCapped(q, pubYear, availableAt, cap + 1);
+                case TRIGRAM -> bookRepository.countFuzzyAnyCapped(q, pubYear, availableAt, cap + 1);
+            };
+            TotalKind kind = counted > cap ? TotalKind.AT_LEAST : TotalKind.EXACT;
+            return new SearchResult(new PageImpl<>(content, pageable, Math.min(counted, cap)), kind, true);
+        }
+        long estimated = Math.max(countEstimator.estimate(query), seen);
+        return new SearchResult(new PageImpl<>(content, pageable, estimated), TotalKind.ESTIMATE, true);
+    }
+
+    // Snapshots, not entities: results outlive the request in SearchResultCache
+    private List<BookSummary> window(Path path, String q, Integer pubYear, Long availableAt, int limit, long offset) {
+        List<Book> rows = switch (path) {
+            case CJK -> bookRepository.searchCjkWindow(q, pubYear, availableAt, limit, offset);
+            case HYBRID -> bookRepository.searchHybridWindow(q, pubYear, availableAt, limit, offset);
+            case TRIGRAM -> bookRepository.searchFuzzyAnyWindow(q, pubYear, availableAt, limit, offset);
+        };
+        return rows.stream().map(BookSummary::of).toList();
+    }
+
+    // CJK text has no word boundaries for tsvector and too few trigrams, so it takes the bigram index whatever the ranking
+    enum Path {
+        TRIGRAM, HYBRID, CJK;
+
+        static Path of(SearchQuery query) {
+            if (SearchText.hasCjkBigram(query.q())) {
+                return CJK;
+            }
+            return query.ranking() == RankingMode.HYBRID ? HYBRID : TRIGRAM;
+        }
+    }
+}
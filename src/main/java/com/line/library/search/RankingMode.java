@@ -0,0 +1,9 @@
+package com.line.library.search;
+
+// Ordering used for fuzzy search results (app.search.ranking, or ?rank= per request)
+public enum RankingMode {
+    // ILIKE substring match ordered by pg_trgm similarity
+    TRIGRAM,
+    // tsvector match ordered by ts_rank_cd, with trigram similarity (%) catching typos
+    HYBRID
+}
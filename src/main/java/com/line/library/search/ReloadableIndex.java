@@ -0,0 +1,85 @@
+package com.line.library.search;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.springframework.data.domain.Limit;
+
+import com.line.library.book.Book;
+import com.line.library.book.BookRepository;
+
+/**
+ * An in-memory catalog index that can be reloaded from the database while
+ * it keeps serving. A reload fills a fresh instance and swaps it in.
+ *
+ * Saves and the swap take the same lock, so a save lands either in the old
+ * instance before the swap or in the new one after it. A batch read
+ * before a book's update committed can still put the older row into the
+ * fresh instance, so the ids saved during a reload are read again after
+ * the swap. That re-read holds the lock too. Saves are reported after
+ * their commit, so whichever of the two puts runs last carries the
+ * committed row.
+ */
+final class ReloadableIndex<T> {
+
+    private static final int LOAD_BATCH = 5000;
+
+    private final Supplier<T> factory;
+    private final BiConsumer<T, Book> put;
+    private final Object lock = new Object();
+    private volatile T current;
+    // Non-null while a reload is loading; guarded by lock
+    private Set<Long> savedDuringReload;
+
+    ReloadableIndex(Supplier<T> factory, BiConsumer<T, Book> put) {
+        this.factory = factory;
+        this.put = put;
+        this.current = factory.get();
+    }
+
+    T current() {
+        return current;
+    }
+
+    void onBookSaved(Book book) {
+        synchronized (lock) {
+            put.accept(current, book);
+            if (savedDuringReload != null) {
+                savedDuringReload.add(book.getId());
+            }
+        }
+    }
+
+    // Returns the new instance once it serves; prepare runs on it just before the swap
+    synchronized T reload(BookRepository bookRepository, Consumer<T> prepare) {
+        T fresh = factory.get();
+        synchronized (lock) {
+            savedDuringReload = new HashSet<>();
+        }
+        long lastId = 0;
+        List<Book> batch;
+        do {
+            batch = bookRepository.findByIdGreaterThanOrderByIdAsc(lastId, Limit.of(LOAD_BATCH));
+            for (Book b : batch) {
+                put.accept(fresh, b);
+                lastId = b.getId();
+            }
+        } while (batch.size() == LOAD_BATCH);
+        prepare.accept(fresh);
+        synchronized (lock) {
+            current = fresh;
+            Set<Long> saved = savedDuringReload;
+            savedDuringReload = null;
+            if (!saved.isEmpty()) {
+                for (Book b : bookRepository.findAllById(saved)) {
+                    put.accept(fresh, b);
+                }
+            }
+        }
+        return fresh;
+    }
+}
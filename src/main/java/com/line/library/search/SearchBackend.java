@@ -0,0 +1,19 @@
+package com.line.library.search;
+
+import org.springframework.data.domain.Pageable;
+
+import com.line.library.book.Book;
+
+// Fuzzy title/author search used by the /books listing.
+// For TRIGRAM ranking implementations must order like BookRepository.searchFuzzyAnyPaged:
+// substring match on search_text, then similarity desc, then id asc.
+public interface SearchBackend {
+
+    SearchResult search(SearchQuery query, Pageable pageable);
+
+    // Called after a book has been created or updated so in-memory backends can stay current
+    default void onBookSaved(Book book) { }
+
+    // Reloads in-memory state from the database when this node may have missed writes from other nodes
+    default void rebuild() { }
+}
@@ -0,0 +1,65 @@
+package com.line.library.search;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+// Reads the planner's row estimate for the search predicate instead of counting
+@Component
+public class SearchCountEstimator {
+
+    private static final String EXPLAIN_TRIGRAM_SQL = """
+        explain (format json)
+        select 1
+        from books b
+        where b.search_text ilike ('%' || immutable_unaccent(lower(?)) || '%')
+          and (cast(? as integer) is null or b.pub_year = ?)
+          and (cast(? as bigint) is null or exists (
+                select 1 from book_copies c
+                where c.book_id = b.id and c.library_id = ? and c.current_loan_id is null and c.hold_id is null))
+        """;
+    private static final String EXPLAIN_HYBRID_SQL = """
+        explain (format json)
+        select 1
+        from books b
+        where (b.search_tsv @@ websearch_to_tsquery('simple', immutable_unaccent(lower(?)))
+               or immutable_unaccent(lower(?)) <% b.search_text)
+          and (cast(? as integer) is null or b.pub_year = ?)
+          and (cast(? as bigint) is null or exists (
+                select 1 from book_copies c
+                where c.book_id = b.id and c.library_id = ? and c.current_loan_id is null and c.hold_id is null))
+        """;
+    private static final String EXPLAIN_CJK_SQL = """
+        explain (format json)
+        select 1
+        from books b
+        where cjk_bigrams(b.search_text) @> cjk_bigrams(immutable_unaccent(lower(?)))
+          and b.search_text like ('%' || immutable_unaccent(lower(?)) || '%')
+          and (cast(? as integer) is null or b.pub_year = ?)
+          and (cast(? as bigint) is null or exists (
+                select 1 from book_copies c
+                where c.book_id = b.id and c.library_id = ? and c.current_loan_id is null and c.hold_id is null))
+        """;
+    private static final Pattern PLAN_ROWS = Pattern.compile("\"Plan Rows\":\\s*(\\d+)");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SearchCountEstimator(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public long estimate(SearchQuery query) {
+        String q = query.q();
+        Integer y = query.pubYear();
+        Long lib = query.availableAt();
+        String plan = switch (PostgresSearchBackend.Path.of(query)) {
+            case CJK -> jdbcTemplate.queryForObject(EXPLAIN_CJK_SQL, String.class, q, q, y, y, lib, lib);
+            case HYBRID -> jdbcTemplate.queryForObject(EXPLAIN_HYBRID_SQL, String.class, q, q, y, y, lib, lib);
+            case TRIGRAM -> jdbcTemplate.queryForObject(EXPLAIN_TRIGRAM_SQL, String.class, q, y, y, lib, lib);
+        };
+        Matcher m = plan != null ? PLAN_ROWS.matcher(plan) : null;
+        return (m != null && m.find()) ? Long.parseLong(m.group(1)) : 0L;
+    }
+}
@@ -0,0 +1,5 @@
+package com.line.library.search;
+
+// What the user asked for on /books: text, optional year and branch-availability filters, ranking mode
+public record SearchQuery(String q, Integer pubYear, Long availableAt, RankingMode ranking) {
+}
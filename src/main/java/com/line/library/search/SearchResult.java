@@ -0,0 +1,29 @@
+package com.line.library.search;
+
+import org.springframework.data.domain.Page;
+
+import com.line.library.book.BookSummary;
+
+// A page of search hits; totalKind says how far page.getTotalElements() can be trusted.
+// Rows are immutable snapshots so a cached result can be shared across requests.
+// facets is null when the backend skipped the full match set (capped/estimated counts).
+public record SearchResult(Page<BookSummary> page, TotalKind totalKind, boolean hasNext, Facets facets) {
+
+    public enum TotalKind {
+        EXACT,
+        AT_LEAST,
+        ESTIMATE
+    }
+
+    public SearchResult(Page<BookSummary> page, TotalKind totalKind, boolean hasNext) {
+        this(page, totalKind, hasNext, null);
+    }
+
+    public static SearchResult exact(Page<BookSummary> page) {
+        return new SearchResult(page, TotalKind.EXACT, page.hasNext());
+    }
+
+    public static SearchResult exact(Page<BookSummary> page, Facets facets) {
+        return new SearchResult(page, TotalKind.EXACT, page.hasNext(), facets);
+    }
+}
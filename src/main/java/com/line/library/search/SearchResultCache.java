@@ -0,0 +1,51 @@
+package com.line.library.search;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.line.library.book.CatalogVersion;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Caches fuzzy search pages keyed by the normalized query.
+ * The key carries the catalog version the page was computed at, so a book
+ * write makes older entries unreachable; they stop receiving hits and are
+ * the first to go under the size bound. Hit/miss counters are published as
+ * cache.gets{cache=searchResults}.
+ */
+@Component
+public class SearchResultCache {
+
+    private final Cache<Key, SearchResult> cache;
+    private final CatalogVersion catalogVersion;
+
+    public SearchResultCache(CatalogVersion catalogVersion,
+                             MeterRegistry meterRegistry,
+                             @Value("${app.search.cache.max-size:5000}") long maxSize,
+                             @Value("${app.search.cache.ttl:1h}") Duration ttl) {
+        this.catalogVersion = catalogVersion;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "searchResults");
+    }
+
+    public SearchResult get(SearchQuery query, int page, int size, Supplier<SearchResult> loader) {
+        // Read the version before loading so a concurrent write makes this entry stale, not wrong
+        Key key = new Key(SearchText.normalize(query.q().trim()), query.pubYear(), query.availableAt(),
+                query.ranking(), page, size, catalogVersion.current());
+        return cache.get(key, k -> loader.get());
+    }
+
+    public record Key(String normalizedQuery, Integer pubYear, Long availableAt, RankingMode ranking,
+                      int page, int size, long catalogVersion) { }
+}
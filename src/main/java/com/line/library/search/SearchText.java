@@ -0,0 +1,65 @@
+package com.line.library.search;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+// Java counterpart of the generated column books.search_text:
+// immutable_unaccent(lower(title || ' ' || author))
+public final class SearchText {
+
+    // Only strip Latin/Greek/Cyrillic diacritics, like the unaccent rules; CJK and kana marks are kept
+    private static final Pattern DIACRITICS = Pattern.compile("[\\u0300-\\u036f]+");
+
+    private SearchText() { }
+
+    // Same ranges as the cjk_bigrams() SQL function: kana, CJK ideographs (incl. ext. A, compatibility), Hangul
+    public static boolean isCjk(char c) {
+        return (c >= '\u3040' && c <= '\u30ff')
+                || (c >= '\u3400' && c <= '\u4dbf')
+                || (c >= '\u4e00' && c <= '\u9fff')
+                || (c >= '\uac00' && c <= '\ud7af')
+                || (c >= '\uf900' && c <= '\ufaff');
+    }
+
+    // True when the text has two adjacent CJK characters, i.e. at least one bigram to search with
+    public static boolean hasCjkBigram(String s) {
+        if (s == null) {
+            return false;
+        }
+        for (int i = 1; i < s.length(); i++) {
+            if (isCjk(s.charAt(i - 1)) && isCjk(s.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static String of(String title, String author) {
+        return normalize(title + " " + author);
+    }
+
+    public static String normalize(String s) {
+        if (s == null) {
+            return "";
+        }
+        String lower = s.toLowerCase(Locale.ROOT);
+        String stripped = DIACRITICS.matcher(Normalizer.normalize(lower, Normalizer.Form.NFD)).replaceAll("");
+        // Letters without a decomposition that unaccent still folds
+        StringBuilder sb = new StringBuilder(stripped.length());
+        for (int i = 0; i < stripped.length(); i++) {
+            char c = stripped.charAt(i);
+            switch (c) {
+                case 'ß' -> sb.append("ss");
+                case 'æ' -> sb.append("ae");
+                case 'œ' -> sb.append("oe");
+                case 'ø' -> sb.append('o');
+                case 'đ' -> sb.append('d');
+                case 'ł' -> sb.append('l');
+                case 'ı' -> sb.append('i');
+                default -> sb.append(c);
+            }
+        }
+        return Normalizer.normalize(sb, Normalizer.Form.NFC);
+    }
+}
@@ -0,0 +1,92 @@
+package com.line.library.search;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Service;
+
+import com.line.library.book.Book;
+import com.line.library.book.BookRepository;
+
+// "Did you mean" over the title/author vocabulary; built once at startup, then grown as books are saved
+@Service
+public class SpellingService implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(SpellingService.class);
+    // Shorter words are left alone: one edit on them changes the meaning rather than fixing a typo
+    private static final int MIN_WORD_LENGTH = 3;
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    // Word runs in the raw query; combining marks stay inside the word so decomposed input is not split
+    private static final Pattern RAW_WORD = Pattern.compile("[\\p{L}\\p{M}\\p{N}]+");
+
+    private final BookRepository bookRepository;
+    private final ReloadableIndex<BkTree> vocabulary = new ReloadableIndex<>(BkTree::new, SpellingService::addWords);
+
+    public SpellingService(BookRepository bookRepository) {
+        this.bookRepository = bookRepository;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        rebuild();
+    }
+
+    // Suggestions keep using the current vocabulary until the new one is complete; a rebuild also
+    // sheds words of titles that have since been edited away
+    public void rebuild() {
+        long t0 = System.nanoTime();
+        BkTree fresh = vocabulary.reload(bookRepository, v -> { });
+        log.info("Spelling vocabulary built: {} words in {} ms", fresh.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0));
+    }
+
+    // Words of a book's previous title stay in the vocabulary; a stale word only costs a useless suggestion
+    public void onBookSaved(Book book) {
+        vocabulary.onBookSaved(book);
+    }
+
+    private static void addWords(BkTree target, Book book) {
+        for (String word : words(SearchText.of(book.getTitle(), book.getAuthor()))) {
+            if (word.length() >= MIN_WORD_LENGTH) {
+                target.add(word);
+            }
+        }
+    }
+
+    // Returns the corrected query, or null when every word is already known or nothing is close enough.
+    // Only the misspelt words are replaced; punctuation and separators ("C++", "O'Reilly") are kept as typed
+    // because the substring match needs them.
+    public String suggest(String query) {
+        if (query == null) {
+            return null;
+        }
+        StringBuilder out = new StringBuilder(query.length());
+        int copied = 0;
+        boolean changed = false;
+        BkTree vocabulary = this.vocabulary.current();
+        Matcher m = RAW_WORD.matcher(query);
+        while (m.find()) {
+            String w = SearchText.normalize(m.group());
+            if (w.length() < MIN_WORD_LENGTH || vocabulary.contains(w) || NON_WORD.matcher(w).find()) {
+                continue;
+            }
+            String fix = vocabulary.closest(w, w.length() <= 4 ? 1 : 2);
+            if (fix != null) {
+                out.append(query, copied, m.start()).append(fix);
+                copied = m.end();
+                changed = true;
+            }
+        }
+        return changed ? out.append(query, copied, query.length()).toString() : null;
+    }
+
+    private static String[] words(String normalized) {
+        return NON_WORD.splitAsStream(normalized).filter(w -> !w.isEmpty()).toArray(String[]::new);
+    }
+}
@@ -0,0 +1,173 @@
+package com.line.library.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Prefix index for typeahead over normalized titles, title words and authors.
+ *
+ * Keys live in a sorted skip list so a prefix is a contiguous range. Small
+ * ranges are scanned directly; results for broad prefixes (one or two
+ * letters) are memoized and only the prefixes of changed keys are dropped
+ * when a book is saved. Popularity is the book's loan count.
+ */
+final class SuggestIndex {
+
+    // Scans over more entries than this are memoized
+    private static final int MEMO_THRESHOLD = 512;
+    // Longer keys add nothing for typeahead but cost memory
+    private static final int MAX_KEY_LENGTH = 32;
+    private static final char SEP = '\u0000';
+
+    private final ConcurrentSkipListMap<String, Suggestion> entries = new ConcurrentSkipListMap<>();
+    private final Map<Long, List<String>> keysByBook = new ConcurrentHashMap<>();
+    // Replaced whole on refresh, so a scan never sees a half-filled map
+    private volatile Map<Long, Long> popularity = Map.of();
+    private final Map<String, List<Suggestion>> memo = new ConcurrentHashMap<>();
+    private final int topK;
+    // Bumped on every write so a scan that raced with a write is not memoized; writers hold the monitor,
+    // and so does the memo write, which makes its generation check and the put one step
+    private volatile long generation;
+
+    SuggestIndex(int topK) {
+        this.topK = topK;
+    }
+
+    synchronized void put(long bookId, String title, String author) {
+        generation++;
+        remove(bookId);
+        List<String> keys = new ArrayList<>();
+        Suggestion titleEntry = new Suggestion(Suggestion.Kind.TITLE, title, bookId);
+        String normTitle = SearchText.normalize(title);
+        addKey(keys, normTitle, bookId, 'T', titleEntry);
+        // Also match from the start of each later word ("potter" -> "Harry Potter")
+        for (int i = 1; i < normTitle.length(); i++) {
+            if (normTitle.charAt(i - 1) == ' ' && normTitle.charAt(i) != ' ') {
+                addKey(keys, normTitle.substring(i), bookId, 'W', titleEntry);
+            }
+        }
+        addKey(keys, SearchText.normalize(author), bookId, 'A',
+                new Suggestion(Suggestion.Kind.AUTHOR, author, null));
+        keysByBook.put(bookId, keys);
+    }
+
+    synchronized void remove(long bookId) {
+        generation++;
+        List<String> old = keysByBook.remove(bookId);
+        if (old == null) {
+            return;
+        }
+        for (String key : old) {
+            entries.remove(key);
+            forgetPrefixes(key);
+        }
+    }
+
+    synchronized void setPopularity(Map<Long, Long> loansByBook) {
+        generation++;
+        popularity = Map.copyOf(loansByBook);
+        memo.clear();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    List<Suggestion> suggest(String rawPrefix) {
+        String prefix = SearchText.normalize(rawPrefix).stripLeading();
+        if (prefix.isEmpty()) {
+            return List.of();
+        }
+        if (prefix.length() > MAX_KEY_LENGTH) {
+            prefix = prefix.substring(0, MAX_KEY_LENGTH);
+        }
+        List<Suggestion> cached = memo.get(prefix);
+        if (cached != null) {
+            return cached;
+        }
+
+        long gen = generation;
+        Map<Long, Long> scores = popularity;
+        NavigableMap<String, Suggestion> range = entries.subMap(prefix, true, prefix + '\uffff', false);
+        // Min-heap on popularity keeps the best topK; labels are de-duplicated (many books share an author)
+        Map<String, Scored> best = new HashMap<>();
+        // Ties keep the alphabetically first labels, matching the final ordering
+        PriorityQueue<Scored> heap = new PriorityQueue<>(Comparator.comparingLong(Scored::score)
+                .thenComparing(sc -> sc.suggestion.text(), Comparator.reverseOrder()));
+        int scanned = 0;
+        for (Map.Entry<String, Suggestion> e : range.entrySet()) {
+            scanned++;
+            Suggestion s = e.getValue();
+            long score = scores.getOrDefault(bookIdOf(e.getKey()), 0L);
+            String label = label(s);
+            Scored existing = best.get(label);
+            if (existing != null) {
+                if (existing.score >= score) {
+                    continue;
+                }
+                heap.remove(existing);
+            }
+            Scored scored = new Scored(s, score);
+            best.put(label, scored);
+            heap.add(scored);
+            if (heap.size() > topK) {
+                best.remove(label(heap.poll().suggestion));
+            }
+        }
+
+        List<Scored> ordered = new ArrayList<>(heap);
+        ordered.sort(Comparator.comparingLong(Scored::score).reversed()
+                .thenComparing(sc -> sc.suggestion.text()));
+        List<Suggestion> result = ordered.stream().map(Scored::suggestion).toList();
+        if (scanned > MEMO_THRESHOLD) {
+            synchronized (this) {
+                if (gen == generation) {
+                    memo.put(prefix, result);
+                }
+            }
+        }
+        return result;
+    }
+
+    private record Scored(Suggestion suggestion, long score) { }
+
+    private static String label(Suggestion s) {
+        return s.kind() + ":" + s.text();
+    }
+
+    private void addKey(List<String> keys, String normalized, long bookId, char tag, Suggestion s) {
+        if (normalized.isBlank()) {
+            return;
+        }
+        String text = normalized.length() > MAX_KEY_LENGTH ? normalized.substring(0, MAX_KEY_LENGTH) : normalized;
+        String key = text + SEP + tag + bookId;
+        entries.put(key, s);
+        keys.add(key);
+        forgetPrefixes(key);
+    }
+
+    private void forgetPrefixes(String key) {
+        if (memo.isEmpty()) {
+            return;
+        }
+        int end = key.indexOf(SEP);
+        Set<String> prefixes = new HashSet<>();
+        for (int i = 1; i <= end; i++) {
+            prefixes.add(key.substring(0, i));
+        }
+        memo.keySet().removeAll(prefixes);
+    }
+
+    private static long bookIdOf(String key) {
+        return Long.parseLong(key.substring(key.indexOf(SEP) + 2));
+    }
+}
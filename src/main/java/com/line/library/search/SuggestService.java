@@ -0,0 +1,74 @@
+package com.line.library.search;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.line.library.book.Book;
+import com.line.library.book.BookRepository;
+import com.line.library.loan.LoanRepository;
+
+// Typeahead answered from memory; Postgres is only read at startup and for the hourly popularity refresh
+@Service
+public class SuggestService implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(SuggestService.class);
+
+    private final BookRepository bookRepository;
+    private final LoanRepository loanRepository;
+    private final ReloadableIndex<SuggestIndex> index;
+
+    public SuggestService(BookRepository bookRepository,
+                          LoanRepository loanRepository,
+                          @Value("${app.suggest.top-k:10}") int topK) {
+        this.bookRepository = bookRepository;
+        this.loanRepository = loanRepository;
+        this.index = new ReloadableIndex<>(() -> new SuggestIndex(topK),
+                (target, b) -> target.put(b.getId(), b.getTitle(), b.getAuthor()));
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        rebuild();
+    }
+
+    // Typeahead keeps using the current index until the new one is complete
+    public void rebuild() {
+        long t0 = System.nanoTime();
+        SuggestIndex fresh = index.reload(bookRepository, loaded -> loaded.setPopularity(loansByBook()));
+        log.info("Suggest index built: {} keys in {} ms", fresh.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0));
+    }
+
+    // Loan counts drift slowly; refreshing hourly is enough for ranking
+    @Scheduled(fixedDelayString = "${app.suggest.popularity-refresh-ms:3600000}",
+               initialDelayString = "${app.suggest.popularity-refresh-ms:3600000}")
+    public void refreshPopularity() {
+        index.current().setPopularity(loansByBook());
+    }
+
+    public void onBookSaved(Book book) {
+        index.onBookSaved(book);
+    }
+
+    private Map<Long, Long> loansByBook() {
+        Map<Long, Long> loans = new HashMap<>();
+        for (LoanRepository.BookLoanCount c : loanRepository.countLoansByBook()) {
+            loans.put(c.getBookId(), c.getLoans());
+        }
+        return loans;
+    }
+
+    public List<Suggestion> suggest(String prefix) {
+        return prefix == null ? List.of() : index.current().suggest(prefix);
+    }
+}
@@ -0,0 +1,10 @@
+package com.line.library.search;
+
+// One typeahead entry; bookId is set for titles and null for authors
+public record Suggestion(Kind kind, String text, Long bookId) {
+
+    public enum Kind {
+        TITLE,
+        AUTHOR
+    }
+}
@@ -0,0 +1,324 @@
+package com.line.library.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongPredicate;
+
+import com.line.library.book.BookType;
+
+/**
+ * In-memory trigram inverted index over books.search_text.
+ *
+ * Candidates come from raw 3-character windows (what the GIN index uses for
+ * ILIKE '%q%'), are verified with a substring check, then scored with the
+ * pg_trgm word-padded trigram similarity so the ranking matches Postgres.
+ * Posting lists hold int slots, kept sorted for merge intersection.
+ *
+ * CJK character bigrams are indexed alongside, mirroring the cjk_bigrams()
+ * GIN index: queries with CJK text probe those instead and rank shorter
+ * texts first, as the SQL CJK path does.
+ */
+final class TrigramIndex {
+
+    private static final int NO_YEAR = Integer.MIN_VALUE;
+    // Third slot of a packed CJK bigram; a noncharacter, so it never collides with a real trigram
+    private static final char BIGRAM_PAD = '\uffff';
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Integer> slotByBookId = new HashMap<>();
+    private final Map<Long, IntPostings> postings = new HashMap<>();
+
+    private long[] bookIds = new long[1024];
+    private int[] pubYears = new int[1024];
+    private BookType[] types = new BookType[1024];
+    private String[] texts = new String[1024];
+    private long[][] rankGrams = new long[1024][];
+    private int size;
+
+    void put(long bookId, Integer pubYear, BookType type, String searchText) {
+        lock.writeLock().lock();
+        try {
+            Integer existing = slotByBookId.get(bookId);
+            int slot;
+            if (existing != null) {
+                slot = existing;
+                for (long g : indexGrams(texts[slot])) {
+                    IntPostings p = postings.get(g);
+                    if (p != null && p.remove(slot) && p.size == 0) {
+                        postings.remove(g);
+                    }
+                }
+            } else {
+                slot = size++;
+                ensureCapacity(size);
+                slotByBookId.put(bookId, slot);
+            }
+            bookIds[slot] = bookId;
+            pubYears[slot] = pubYear != null ? pubYear : NO_YEAR;
+            types[slot] = type;
+            texts[slot] = searchText;
+            rankGrams[slot] = similarityGrams(searchText);
+            for (long g : indexGrams(searchText)) {
+                postings.computeIfAbsent(g, k -> new IntPostings()).add(slot);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns matching book ids ordered like searchFuzzyAnyPaged:
+     * similarity desc, then id asc, with decade/type facet counts taken
+     * in the same pass. The query must already be normalized.
+     */
+    Matches search(String q, Integer pubYear) {
+        return search(q, pubYear, null);
+    }
+
+    // bookFilter (nullable) restricts matches before ranking and facet counting
+    Matches search(String q, Integer pubYear, LongPredicate bookFilter) {
+        lock.readLock().lock();
+        try {
+            boolean cjk = SearchText.hasCjkBigram(q);
+            int[] candidates = candidates(q, cjk);
+            long[] qGrams = similarityGrams(q);
+
+            List<Hit> hits = new ArrayList<>();
+            Facets.Counter facets = Facets.counter();
+            for (int slot : candidates) {
+                if (pubYear != null && pubYears[slot] != pubYear) {
+                    continue;
+                }
+                if (bookFilter != null && !bookFilter.test(bookIds[slot])) {
+                    continue;
+                }
+                if (!texts[slot].contains(q)) {
+                    continue;
+                }
+                float score = cjk ? 1f / cjkBigrams(texts[slot]).length : similarity(rankGrams[slot], qGrams);
+                hits.add(new Hit(bookIds[slot], score));
+                facets.add(pubYears[slot] == NO_YEAR ? null : pubYears[slot], types[slot], 1);
+            }
+            hits.sort((a, b) -> {
+                int c = Float.compare(b.score, a.score);
+                return c != 0 ? c : Long.compare(a.bookId, b.bookId);
+            });
+
+            long[] ids = new long[hits.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = hits.get(i).bookId;
+            }
+            return new Matches(ids, facets.build());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    record Matches(long[] ids, Facets facets) { }
+
+    private record Hit(long bookId, float score) { }
+
+    private int[] candidates(String q, boolean cjk) {
+        long[] grams = cjk ? cjkBigrams(q) : windows(q);
+        if (grams.length == 0) {
+            // Nothing to probe with; fall back to checking every row
+            int[] all = new int[size];
+            for (int i = 0; i < size; i++) {
+                all[i] = i;
+            }
+            return all;
+        }
+        IntPostings[] lists = new IntPostings[grams.length];
+        for (int i = 0; i < grams.length; i++) {
+            lists[i] = postings.get(grams[i]);
+            if (lists[i] == null) {
+                return new int[0];
+            }
+        }
+        // Intersect starting from the rarest trigram
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+        int[] acc = Arrays.copyOf(lists[0].data, lists[0].size);
+        int n = acc.length;
+        for (int i = 1; i < lists.length && n > 0; i++) {
+            n = intersectInto(acc, n, lists[i]);
+        }
+        return Arrays.copyOf(acc, n);
+    }
+
+    private static int intersectInto(int[] acc, int n, IntPostings other) {
+        int i = 0, j = 0, out = 0;
+        int[] b = other.data;
+        while (i < n && j < other.size) {
+            if (acc[i] < b[j]) {
+                i++;
+            } else if (acc[i] > b[j]) {
+                j++;
+            } else {
+                acc[out++] = acc[i];
+                i++;
+                j++;
+            }
+        }
+        return out;
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed <= bookIds.length) {
+            return;
+        }
+        int cap = Math.max(needed, bookIds.length * 2);
+        bookIds = Arrays.copyOf(bookIds, cap);
+        pubYears = Arrays.copyOf(pubYears, cap);
+        types = Arrays.copyOf(types, cap);
+        texts = Arrays.copyOf(texts, cap);
+        rankGrams = Arrays.copyOf(rankGrams, cap);
+    }
+
+    // Unique raw 3-character windows, spaces included
+    static long[] windows(String s) {
+        if (s == null || s.length() < 3) {
+            return new long[0];
+        }
+        long[] out = new long[s.length() - 2];
+        for (int i = 0; i + 3 <= s.length(); i++) {
+            out[i] = pack(s.charAt(i), s.charAt(i + 1), s.charAt(i + 2));
+        }
+        return distinctSorted(out, out.length);
+    }
+
+    // Distinct adjacent CJK character pairs, packed like trigrams with a pad in the last slot
+    static long[] cjkBigrams(String s) {
+        if (s == null || s.length() < 2) {
+            return new long[0];
+        }
+        long[] out = new long[s.length() - 1];
+        int n = 0;
+        for (int i = 1; i < s.length(); i++) {
+            char a = s.charAt(i - 1);
+            char b = s.charAt(i);
+            if (SearchText.isCjk(a) && SearchText.isCjk(b)) {
+                out[n++] = pack(a, b, BIGRAM_PAD);
+            }
+        }
+        return distinctSorted(out, n);
+    }
+
+    // Everything a text is posted under: its raw trigram windows plus its CJK bigrams
+    private static long[] indexGrams(String s) {
+        long[] tri = windows(s);
+        long[] bi = cjkBigrams(s);
+        if (bi.length == 0) {
+            return tri;
+        }
+        long[] all = Arrays.copyOf(tri, tri.length + bi.length);
+        System.arraycopy(bi, 0, all, tri.length, bi.length);
+        return all;
+    }
+
+    // pg_trgm show_trgm(): each alphanumeric word padded as "  word " and split into trigrams
+    static long[] similarityGrams(String s) {
+        if (s == null || s.isEmpty()) {
+            return new long[0];
+        }
+        long[] out = new long[s.length() * 3 + 3];
+        int n = 0;
+        int i = 0;
+        while (i < s.length()) {
+            while (i < s.length() && !Character.isLetterOrDigit(s.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < s.length() && Character.isLetterOrDigit(s.charAt(i))) {
+                i++;
+            }
+            if (i > start) {
+                String padded = "  " + s.substring(start, i) + " ";
+                for (int k = 0; k + 3 <= padded.length(); k++) {
+                    out[n++] = pack(padded.charAt(k), padded.charAt(k + 1), padded.charAt(k + 2));
+                }
+            }
+        }
+        return distinctSorted(out, n);
+    }
+
+    // Same formula as pg_trgm similarity(): shared / (|a| + |b| - shared)
+    static float similarity(long[] a, long[] b) {
+        if (a.length == 0 || b.length == 0) {
+            return 0f;
+        }
+        int i = 0, j = 0, shared = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                shared++;
+                i++;
+                j++;
+            }
+        }
+        return (float) shared / (float) (a.length + b.length - shared);
+    }
+
+    private static long pack(char a, char b, char c) {
+        return ((long) a << 32) | ((long) b << 16) | c;
+    }
+
+    private static long[] distinctSorted(long[] values, int n) {
+        if (n == 0) {
+            return new long[0];
+        }
+        Arrays.sort(values, 0, n);
+        int out = 1;
+        for (int i = 1; i < n; i++) {
+            if (values[i] != values[out - 1]) {
+                values[out++] = values[i];
+            }
+        }
+        return Arrays.copyOf(values, out);
+    }
+
+    // Sorted, growable int posting list
+    private static final class IntPostings {
+        int[] data = new int[4];
+        int size;
+
+        void add(int slot) {
+            int pos = Arrays.binarySearch(data, 0, size, slot);
+            if (pos >= 0) {
+                return;
+            }
+            pos = -pos - 1;
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size * 2);
+            }
+            System.arraycopy(data, pos, data, pos + 1, size - pos);
+            data[pos] = slot;
+            size++;
+        }
+
+        boolean remove(int slot) {
+            int pos = Arrays.binarySearch(data, 0, size, slot);
+            if (pos < 0) {
+                return false;
+            }
+            System.arraycopy(data, pos + 1, data, pos, size - pos - 1);
+            size--;
+            return true;
+        }
+    }
+}
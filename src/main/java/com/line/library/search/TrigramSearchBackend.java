@@ -0,0 +1,114 @@
+package com.line.library.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.LongPredicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import com.line.library.book.Book;
+import com.line.library.book.BookRepository;
+import com.line.library.book.BookSummary;
+import com.line.library.copy.BookCopyRepository;
+
+// In-JVM alternative to the pg_trgm query; only page rows are loaded from the database (by primary key)
+@Component
+@ConditionalOnProperty(name = "app.search.backend", havingValue = "memory")
+// Built before CacheWarmer replays searches against it
+@Order(0)
+public class TrigramSearchBackend implements SearchBackend, ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(TrigramSearchBackend.class);
+
+    private final BookRepository bookRepository;
+    private final BookCopyRepository copyRepository;
+    private final ReloadableIndex<TrigramIndex> index =
+            new ReloadableIndex<>(TrigramIndex::new, TrigramSearchBackend::put);
+
+    public TrigramSearchBackend(BookRepository bookRepository, BookCopyRepository copyRepository) {
+        this.bookRepository = bookRepository;
+        this.copyRepository = copyRepository;
+    }
+
+    // ApplicationRunner: the index is complete before the app reports ready
+    @Override
+    public void run(ApplicationArguments args) {
+        rebuild();
+    }
+
+    // Searches keep using the current index until the new one is complete
+    @Override
+    public void rebuild() {
+        long t0 = System.nanoTime();
+        TrigramIndex fresh = index.reload(bookRepository, loaded -> { });
+        log.info("Trigram index built: {} books in {} ms", fresh.size(),
+                java.util.concurrent.TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0));
+    }
+
+    @Override
+    public void onBookSaved(Book book) {
+        index.onBookSaved(book);
+    }
+
+    private static void put(TrigramIndex target, Book book) {
+        target.put(book.getId(), book.getPubYear(), book.getType(), SearchText.of(book.getTitle(), book.getAuthor()));
+    }
+
+    @Override
+    // Only TRIGRAM ranking is available in memory; HYBRID requests are served with it too
+    public SearchResult search(SearchQuery query, Pageable pageable) {
+        String q = query.q();
+        // Same guards as the SQL: length(:q) >= 3, or at least one CJK bigram
+        if (q == null || (q.length() < 3 && !SearchText.hasCjkBigram(q))) {
+            return SearchResult.exact(Page.empty(pageable));
+        }
+        // Availability changes with every loan, so it is read from the partial index rather than held here
+        LongPredicate filter = null;
+        if (query.availableAt() != null) {
+            Set<Long> available = new HashSet<>(copyRepository.findAvailableBookIds(query.availableAt()));
+            filter = available::contains;
+        }
+        TrigramIndex.Matches matches = index.current().search(SearchText.normalize(q), query.pubYear(), filter);
+        long[] ranked = matches.ids();
+
+        int from = (int) Math.min(pageable.getOffset(), ranked.length);
+        int to = Math.min(from + pageable.getPageSize(), ranked.length);
+        long[] pageIds = Arrays.copyOfRange(ranked, from, to);
+        // Every match is already in hand, so the total is always exact
+        return SearchResult.exact(new PageImpl<>(loadInOrder(pageIds), pageable, ranked.length), matches.facets());
+    }
+
+    // Snapshots, not entities: results outlive the request in SearchResultCache
+    private List<BookSummary> loadInOrder(long[] ids) {
+        if (ids.length == 0) {
+            return List.of();
+        }
+        List<Long> boxed = Arrays.stream(ids).boxed().toList();
+        Map<Long, Book> byId = new HashMap<>();
+        for (Book b : bookRepository.findAllById(boxed)) {
+            byId.put(b.getId(), b);
+        }
+        List<BookSummary> ordered = new ArrayList<>(ids.length);
+        for (Long id : boxed) {
+            Book b = byId.get(id);
+            if (b != null) {
+                ordered.add(BookSummary.of(b));
+            }
+        }
+        return ordered;
+    }
+}
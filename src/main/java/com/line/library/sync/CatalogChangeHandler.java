@@ -0,0 +1,91 @@
+package com.line.library.sync;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import com.line.library.book.Book;
+import com.line.library.book.BookPageCache;
+import com.line.library.book.BookRepository;
+import com.line.library.book.CatalogVersion;
+import com.line.library.copy.CopyVersion;
+import com.line.library.search.SearchBackend;
+import com.line.library.search.SpellingService;
+import com.line.library.search.SuggestService;
+
+import jakarta.persistence.EntityManagerFactory;
+
+// Applies a book write to every cache and in-memory index of this node
+@Component
+public class CatalogChangeHandler {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogChangeHandler.class);
+
+    private final BookRepository bookRepository;
+    private final SearchBackend searchBackend;
+    private final SuggestService suggestService;
+    private final SpellingService spellingService;
+    private final BookPageCache pageCache;
+    private final CatalogVersion catalogVersion;
+    private final CopyVersion copyVersion;
+    private final EntityManagerFactory entityManagerFactory;
+
+    public CatalogChangeHandler(BookRepository bookRepository,
+                                SearchBackend searchBackend,
+                                SuggestService suggestService,
+                                SpellingService spellingService,
+                                BookPageCache pageCache,
+                                CatalogVersion catalogVersion,
+                                CopyVersion copyVersion,
+                                EntityManagerFactory entityManagerFactory) {
+        this.bookRepository = bookRepository;
+        this.searchBackend = searchBackend;
+        this.suggestService = suggestService;
+        this.spellingService = spellingService;
+        this.pageCache = pageCache;
+        this.catalogVersion = catalogVersion;
+        this.copyVersion = copyVersion;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    public void onBookSaved(Book book, boolean created) {
+        searchBackend.onBookSaved(book);
+        suggestService.onBookSaved(book);
+        spellingService.onBookSaved(book);
+        if (created) {
+            pageCache.onBookInserted(book);
+        } else {
+            pageCache.onBookUpdated(book);
+        }
+        catalogVersion.bump();
+    }
+
+    // Another node wrote the book; its commit happened before the notification, so the row is current
+    // once this node's second-level cache entry is gone
+    public void onBookSavedElsewhere(long bookId, boolean created) {
+        entityManagerFactory.getCache().evict(Book.class, bookId);
+        bookRepository.findById(bookId).ifPresentOrElse(
+                book -> onBookSaved(book, created),
+                () -> log.warn("Change notification for unknown book {}", bookId));
+    }
+
+    // A copy was added, loaned or returned here or on another node (after commit either way)
+    public void onCopiesChanged() {
+        copyVersion.bump();
+    }
+
+    // Notifications may have been missed (listener reconnected): drop what cannot be checked and reload
+    // the in-memory indexes. LISTEN is already active again, so writes committed during the reload are
+    // notified and applied after it.
+    public void onChangesMissed() {
+        entityManagerFactory.getCache().evict(Book.class);
+        pageCache.invalidateAll();
+        catalogVersion.bump();
+        copyVersion.bump();
+        searchBackend.rebuild();
+        suggestService.rebuild();
+        spellingService.rebuild();
+        // Searches cached from the old indexes while they reloaded
+        catalogVersion.bump();
+    }
+}
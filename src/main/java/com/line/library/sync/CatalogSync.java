@@ -0,0 +1,198 @@
+package com.line.library.sync;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.UUID;
+
+import javax.sql.DataSource;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.line.library.book.Book;
+
+/**
+ * Keeps the per-JVM caches of several app instances coherent through the
+ * database they share.
+ *
+ * A book write is applied locally, then announced with pg_notify on the
+ * {@value #CHANNEL} channel as "node kind bookId"; copy and loan changes
+ * go out the same way as kind L with the copy id. Each node holds one
+ * connection in LISTEN mode and replays other nodes' messages through
+ * {@link CatalogChangeHandler}. After a lost connection, or any failure on
+ * the listener thread, it reconnects and rebuilds its caches, since
+ * messages sent meanwhile are gone.
+ * With app.cache.notify.enabled=false writes are applied locally only.
+ */
+@Component
+public class CatalogSync implements SmartLifecycle {
+
+    static final String CHANNEL = "catalog_changes";
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogSync.class);
+    private static final int POLL_MS = 1000;
+    private static final long RECONNECT_DELAY_MS = 5000;
+
+    private final CatalogChangeHandler handler;
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private volatile boolean active;
+    private volatile boolean running;
+    private Thread listener;
+
+    public CatalogSync(CatalogChangeHandler handler,
+                       DataSource dataSource,
+                       JdbcTemplate jdbcTemplate,
+                       @Value("${app.cache.notify.enabled:true}") boolean enabled) {
+        this.handler = handler;
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+    }
+
+    public void bookCreated(Book book) {
+        handler.onBookSaved(book, true);
+        publish('C', book.getId());
+    }
+
+    public void bookUpdated(Book book) {
+        handler.onBookSaved(book, false);
+        publish('U', book.getId());
+    }
+
+    // Call after the change has committed
+    public void copiesChanged(long copyId) {
+        handler.onCopiesChanged();
+        publish('L', copyId);
+    }
+
+    // One invalidation for a batch (bulk returns): peers drop all availability entries on any L message
+    public void copiesChanged(Collection<Long> copyIds) {
+        if (copyIds.isEmpty()) {
+            return;
+        }
+        copiesChanged(copyIds.iterator().next());
+    }
+
+    private void publish(char kind, long id) {
+        if (!active) {
+            return;
+        }
+        try {
+            // Inside a transaction Postgres holds the message until commit, so listeners never see uncommitted rows
+            jdbcTemplate.queryForObject("select pg_notify(?, ?)", Object.class, CHANNEL, nodeId + " " + kind + " " + id);
+        } catch (RuntimeException ex) {
+            // Peers keep serving the old entry until it is written again or expires
+            log.warn("Could not publish change {} {}", kind, id, ex);
+        }
+    }
+
+    void onNotification(String payload) {
+        String[] parts = payload.split(" ");
+        if (parts.length != 3 || parts[0].equals(nodeId)) {
+            return;
+        }
+        try {
+            if ("L".equals(parts[1])) {
+                handler.onCopiesChanged();
+                return;
+            }
+            handler.onBookSavedElsewhere(Long.parseLong(parts[2]), "C".equals(parts[1]));
+        } catch (RuntimeException ex) {
+            log.warn("Could not apply change notification '{}'", payload, ex);
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            log.info("Cross-node cache invalidation disabled");
+            return;
+        }
+        running = true;
+        active = true;
+        listener = new Thread(this::listen, "catalog-sync");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        active = false;
+        if (listener != null) {
+            listener.interrupt();
+            try {
+                listener.join(POLL_MS * 2L);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void listen() {
+        boolean reconnect = false;
+        while (running) {
+            // Held for the node's lifetime; the pool never retires a connection that is still in use
+            try (Connection conn = dataSource.getConnection()) {
+                try {
+                    try (Statement st = conn.createStatement()) {
+                        st.execute("LISTEN " + CHANNEL);
+                    }
+                    if (reconnect) {
+                        handler.onChangesMissed();
+                        reconnect = false;
+                    }
+                    PGConnection pg = conn.unwrap(PGConnection.class);
+                    while (running) {
+                        PGNotification[] notifications = pg.getNotifications(POLL_MS);
+                        if (notifications != null) {
+                            for (PGNotification n : notifications) {
+                                onNotification(n.getParameter());
+                            }
+                        }
+                    }
+                } finally {
+                    unlisten(conn);
+                }
+            } catch (SQLException | RuntimeException ex) {
+                if (!running) {
+                    return;
+                }
+                // Also a failed rebuild in onChangesMissed: it is retried on the next connection
+                log.warn("Catalog change listener failed; reconnecting in {} ms", RECONNECT_DELAY_MS, ex);
+                reconnect = true;
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MS);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+
+    // The connection goes back to the pool; it must not keep collecting notifications for whoever borrows it next
+    private static void unlisten(Connection conn) {
+        try (Statement st = conn.createStatement()) {
+            st.execute("UNLISTEN *");
+        } catch (SQLException ex) {
+            log.debug("Could not unlisten before returning the connection", ex);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.line.library.warmup;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import com.line.library.book.BookPageCache;
+import com.line.library.book.BookRepository;
+import com.line.library.library.LibraryRepository;
+import com.line.library.search.SearchBackend;
+import com.line.library.search.SearchQuery;
+import com.line.library.search.SearchResultCache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Fills the browse-page and search-result caches before the app reports
+ * ready: runners finish before ApplicationReadyEvent, which is what flips
+ * the readiness probe to ACCEPTING_TRAFFIC. Loading the same pages through
+ * the same queries also pulls the pg_trgm/GIN index pages into the
+ * Postgres buffer cache.
+ *
+ * Work runs on a small pool and stops at the time budget; whatever has not
+ * run by then is skipped, not waited for. Timings are published as
+ * warmup.duration{phase} and task counts as warmup.tasks{phase,outcome}.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+@ConditionalOnProperty(name = "app.warmup.enabled", havingValue = "true", matchIfMissing = true)
+public class CacheWarmer implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheWarmer.class);
+    private static final int PAGE_SIZE = 10;
+
+    private final BookRepository bookRepository;
+    private final LibraryRepository libraryRepository;
+    private final BookPageCache pageCache;
+    private final SearchBackend searchBackend;
+    private final SearchResultCache searchCache;
+    private final HotQueryRecorder hotQueries;
+    private final MeterRegistry meterRegistry;
+    private final int browsePages;
+    private final int searchQueries;
+    private final int parallelism;
+    private final Duration budget;
+
+    public CacheWarmer(BookRepository bookRepository,
+                       LibraryRepository libraryRepository,
+                       BookPageCache pageCache,
+                       SearchBackend searchBackend,
+                       SearchResultCache searchCache,
+                       HotQueryRecorder hotQueries,
+                       MeterRegistry meterRegistry,
+                       @Value("${app.warmup.browse-pages:20}") int browsePages,
+                       @Value("${app.warmup.search-queries:100}") int searchQueries,
+                       @Value("${app.warmup.parallelism:4}") int parallelism,
+                       @Value("${app.warmup.budget:30s}") Duration budget) {
+        this.bookRepository = bookRepository;
+        this.libraryRepository = libraryRepository;
+        this.pageCache = pageCache;
+        this.searchBackend = searchBackend;
+        this.searchCache = searchCache;
+        this.hotQueries = hotQueries;
+        this.meterRegistry = meterRegistry;
+        this.browsePages = browsePages;
+        this.searchQueries = searchQueries;
+        this.parallelism = parallelism;
+        this.budget = budget;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long deadline = System.nanoTime() + budget.toNanos();
+        Timer.Sample total = Timer.start(meterRegistry);
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread t = new Thread(r, "cache-warmup");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            // Read on every /books request (query cache + Library entities)
+            libraryRepository.findAll();
+
+            List<Runnable> browse = new ArrayList<>();
+            for (int p = 0; p < browsePages; p++) {
+                int page = p;
+                Pageable pageable = PageRequest.of(page, PAGE_SIZE, Sort.by(Sort.Direction.DESC, "id"));
+                browse.add(() -> pageCache.get(page, PAGE_SIZE, () -> bookRepository.findAll(pageable)));
+            }
+            runPhase("browse", browse, pool, deadline);
+
+            List<Runnable> search = new ArrayList<>();
+            for (SearchQuery q : hotQueries.top(searchQueries)) {
+                Pageable pageable = PageRequest.of(0, PAGE_SIZE);
+                search.add(() -> searchCache.get(q, 0, PAGE_SIZE, () -> searchBackend.search(q, pageable)));
+            }
+            runPhase("search", search, pool, deadline);
+        } finally {
+            pool.shutdownNow();
+            long ms = TimeUnit.NANOSECONDS.toMillis(
+                    total.stop(meterRegistry.timer("warmup.duration", "phase", "total")));
+            log.info("Cache warm-up finished in {} ms", ms);
+        }
+    }
+
+    private void runPhase(String phase, List<Runnable> tasks, ExecutorService pool, long deadline) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        int done = 0;
+        int failed = 0;
+        int skipped = 0;
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0 || tasks.isEmpty()) {
+            skipped = tasks.size();
+        } else {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Runnable task : tasks) {
+                futures.add(pool.submit(task));
+            }
+            for (Future<?> f : futures) {
+                try {
+                    f.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    done++;
+                } catch (TimeoutException | CancellationException ex) {
+                    f.cancel(true);
+                    skipped++;
+                } catch (ExecutionException ex) {
+                    log.debug("Warm-up task failed in phase {}", phase, ex.getCause());
+                    failed++;
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    f.cancel(true);
+                    skipped++;
+                }
+            }
+        }
+        sample.stop(meterRegistry.timer("warmup.duration", "phase", phase));
+        meterRegistry.counter("warmup.tasks", "phase", phase, "outcome", "done").increment(done);
+        meterRegistry.counter("warmup.tasks", "phase", phase, "outcome", "failed").increment(failed);
+        meterRegistry.counter("warmup.tasks", "phase", phase, "outcome", "skipped").increment(skipped);
+        log.info("Warm-up {}: {} done, {} failed, {} skipped", phase, done, failed, skipped);
+    }
+}
@@ -0,0 +1,68 @@
+package com.line.library.warmup;
+
+import com.line.library.search.RankingMode;
+
+import jakarta.persistence.*;
+
+// First-page searches users ran, with how often; replayed by CacheWarmer on the next start
+@Entity
+@Table(name = "search_hot_queries",
+       uniqueConstraints = @UniqueConstraint(name = "uq_search_hot_queries", columnNames = {"query", "pub_year", "ranking"}))
+public class HotQuery {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, columnDefinition = "text")
+    private String query;
+
+    @Column(name = "pub_year")
+    private Integer pubYear;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private RankingMode ranking;
+
+    @Column(nullable = false)
+    private long hits;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public void setQuery(String query) {
+        this.query = query;
+    }
+
+    public Integer getPubYear() {
+        return pubYear;
+    }
+
+    public void setPubYear(Integer pubYear) {
+        this.pubYear = pubYear;
+    }
+
+    public RankingMode getRanking() {
+        return ranking;
+    }
+
+    public void setRanking(RankingMode ranking) {
+        this.ranking = ranking;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public void setHits(long hits) {
+        this.hits = hits;
+    }
+}
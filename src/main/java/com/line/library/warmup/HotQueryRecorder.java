@@ -0,0 +1,134 @@
+package com.line.library.warmup;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.line.library.search.RankingMode;
+import com.line.library.search.SearchQuery;
+import com.line.library.search.SearchText;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Counts first-page searches in memory and periodically adds the counts to
+ * search_hot_queries, trimming the table to the most frequent entries.
+ * Stored counts decay by a factor on every flush, so a query that was hot
+ * last month gives way to what is searched now. Only cacheable searches
+ * are recorded (no availability filter), since replaying the others would
+ * not leave anything warm.
+ */
+@Component
+public class HotQueryRecorder {
+
+    private static final Logger log = LoggerFactory.getLogger(HotQueryRecorder.class);
+    // Distinct queries held between flushes; new ones are dropped beyond this
+    private static final int MAX_PENDING = 10_000;
+
+    private final HotQueryRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final int keep;
+    private final double decay;
+    private final Map<Key, LongAdder> pending = new ConcurrentHashMap<>();
+
+    public HotQueryRecorder(HotQueryRepository repository,
+                            TransactionTemplate transactionTemplate,
+                            @Value("${app.warmup.hot-queries.keep:500}") int keep,
+                            @Value("${app.warmup.hot-queries.decay:0.99}") double decay) {
+        this.repository = repository;
+        this.transactionTemplate = transactionTemplate;
+        this.keep = keep;
+        this.decay = decay;
+    }
+
+    public void record(SearchQuery query) {
+        if (query.availableAt() != null) {
+            return;
+        }
+        Key key = new Key(SearchText.normalize(query.q().trim()), query.pubYear(), query.ranking());
+        LongAdder counter = pending.get(key);
+        if (counter == null) {
+            if (pending.size() >= MAX_PENDING) {
+                return;
+            }
+            counter = pending.computeIfAbsent(key, k -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    public List<SearchQuery> top(int n) {
+        return repository.findAllByOrderByHitsDesc(Limit.of(n)).stream()
+                .map(h -> new SearchQuery(h.getQuery(), h.getPubYear(), null, h.getRanking()))
+                .toList();
+    }
+
+    @Scheduled(fixedDelayString = "${app.warmup.hot-queries.flush-ms:300000}",
+               initialDelayString = "${app.warmup.hot-queries.flush-ms:300000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        // A template rather than @Transactional: the shutdown hook calls this directly, bypassing the proxy
+        transactionTemplate.executeWithoutResult(status -> flushInTransaction());
+    }
+
+    private void flushInTransaction() {
+        Map<Key, Long> drained = new HashMap<>();
+        // Counts leave pending before the commit; a failed flush (e.g. another node inserted the same new
+        // query first) hands them back to the next one. Registered first so nothing is drained without it.
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    drained.forEach((key, hits) -> pending.computeIfAbsent(key, k -> new LongAdder()).add(hits));
+                }
+            }
+        });
+        for (Key key : List.copyOf(pending.keySet())) {
+            LongAdder counter = pending.remove(key);
+            long hits = counter != null ? counter.sum() : 0;
+            if (hits > 0) {
+                drained.put(key, hits);
+            }
+        }
+        repository.decayHits(decay);
+        drained.forEach((key, hits) -> {
+            if (repository.addHits(key.query(), key.pubYear(), key.ranking(), hits) == 0) {
+                HotQuery row = new HotQuery();
+                row.setQuery(key.query());
+                row.setPubYear(key.pubYear());
+                row.setRanking(key.ranking());
+                row.setHits(hits);
+                repository.save(row);
+            }
+        });
+        List<HotQuery> top = repository.findAllByOrderByHitsDesc(Limit.of(keep));
+        if (top.size() == keep) {
+            repository.deleteAllInBatch(repository.findByHitsLessThan(top.get(keep - 1).getHits()));
+        }
+    }
+
+    // Keep this run's counts for the next start
+    @PreDestroy
+    void flushOnShutdown() {
+        try {
+            flush();
+        } catch (RuntimeException ex) {
+            log.warn("Could not save hot search queries on shutdown", ex);
+        }
+    }
+
+    private record Key(String query, Integer pubYear, RankingMode ranking) { }
+}
@@ -0,0 +1,35 @@
+package com.line.library.warmup;
+
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.line.library.search.RankingMode;
+
+public interface HotQueryRepository extends JpaRepository<HotQuery, Long> {
+
+    List<HotQuery> findAllByOrderByHitsDesc(Limit limit);
+
+    List<HotQuery> findByHitsLessThan(long hits);
+
+    // In place, so a concurrent flush on another node adds to the count rather than overwriting it
+    @Modifying(flushAutomatically = true)
+    @Query("""
+        update HotQuery h set h.hits = h.hits + :hits
+        where h.query = :query and h.ranking = :ranking
+          and (h.pubYear = :pubYear or (h.pubYear is null and :pubYear is null))
+        """)
+    int addHits(@Param("query") String query,
+                @Param("pubYear") Integer pubYear,
+                @Param("ranking") RankingMode ranking,
+                @Param("hits") long hits);
+
+    // Rounded rather than truncated so rarely searched entries are not zeroed after a few flushes
+    @Modifying(flushAutomatically = true)
+    @Query("update HotQuery h set h.hits = cast(round(h.hits * cast(:factor as Double), 0) as Long)")
+    int decayHits(@Param("factor") double factor);
+}
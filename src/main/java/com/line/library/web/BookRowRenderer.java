@@ -0,0 +1,83 @@
+package com.line.library.web;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.Context;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.line.library.book.BookSummary;
+import com.line.library.library.Library;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Renders the rows of the books table through fragments/book_row and keeps
+ * the markup, so a page only renders the rows that changed since they were
+ * last shown.
+ *
+ * The key is the content itself: the book's displayed fields (changed by an
+ * edit) and its free-copy counts in library column order (changed by loans,
+ * returns and new copies). A stale entry can therefore never be served; it
+ * just stops being asked for and ages out. Render time per page is published
+ * as books.rows.render, hits and misses as cache.gets{cache=bookRows}.
+ */
+@Component
+public class BookRowRenderer {
+
+    private static final String TEMPLATE = "fragments/book_row";
+    private static final Set<String> FRAGMENT = Set.of("row");
+
+    private final ITemplateEngine templateEngine;
+    private final Cache<RowKey, String> cache;
+    private final Timer renderTimer;
+
+    public BookRowRenderer(ITemplateEngine templateEngine,
+                           MeterRegistry meterRegistry,
+                           @Value("${app.books.row-cache.max-size:20000}") long maxSize) {
+        this.templateEngine = templateEngine;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "bookRows");
+        this.renderTimer = meterRegistry.timer("books.rows.render");
+    }
+
+    // One HTML string per row, in order
+    public List<String> render(List<BooksController.BookAvailabilityRow> rows, List<Library> libraries, String contextPath) {
+        long t0 = System.nanoTime();
+        List<Long> libraryIds = libraries.stream().map(Library::getId).toList();
+        List<String> html = new ArrayList<>(rows.size());
+        Context context = null;
+        for (BooksController.BookAvailabilityRow row : rows) {
+            RowKey key = new RowKey(row.book(), libraryIds, List.copyOf(row.availableByLibraryId().values()), contextPath);
+            String fragment = cache.getIfPresent(key);
+            if (fragment == null) {
+                if (context == null) {
+                    // Plain context, not the request's: nothing viewer-specific (session ids in URLs, CSRF) can end up shared
+                    context = new Context(LocaleContextHolder.getLocale());
+                    context.setVariable("libraries", libraries);
+                    context.setVariable("contextPath", contextPath);
+                }
+                context.setVariable("row", row);
+                fragment = templateEngine.process(TEMPLATE, FRAGMENT, context);
+                cache.put(key, fragment);
+            }
+            html.add(fragment);
+        }
+        renderTimer.record(System.nanoTime() - t0, TimeUnit.NANOSECONDS);
+        return html;
+    }
+
+    private record RowKey(BookSummary book, List<Long> libraryIds, List<Long> available, String contextPath) { }
+}
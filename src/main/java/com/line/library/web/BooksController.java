@@ -1,14 +1,17 @@
 package com.line.library.web;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -16,16 +19,34 @@ import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import com.line.library.book.Book;
+import com.line.library.book.BookPageCache;
 import com.line.library.book.BookRepository;
+import com.line.library.book.BookService;
+import com.line.library.book.BookSummary;
 import com.line.library.book.BookType;
 import com.line.library.copy.BookCopyRepository;
 import com.line.library.copy.BookCopy;
+import com.line.library.hold.Hold;
+import com.line.library.hold.HoldService;
+import com.line.library.hold.HoldStatus;
 import com.line.library.library.Library;
 import com.line.library.library.LibraryRepository;
+import com.line.library.search.Facets;
+import com.line.library.search.RankingMode;
+import com.line.library.search.SearchBackend;
+import com.line.library.search.SearchQuery;
+import com.line.library.search.SearchResult;
+import com.line.library.search.SearchResultCache;
+import com.line.library.search.SearchText;
+import com.line.library.search.SpellingService;
 import com.line.library.security.AuthUtils;
+import com.line.library.sync.CatalogSync;
+import com.line.library.warmup.HotQueryRecorder;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -35,22 +56,65 @@ import org.springframework.data.domain.Sort;
 public class BooksController {
 
     private final BookRepository bookRepository;
+    private final BookService bookService;
     private final LibraryRepository libraryRepository;
     private final BookCopyRepository copyRepository;
+    private final SearchBackend searchBackend;
+    private final SearchResultCache searchCache;
+    private final BookPageCache pageCache;
+    private final SpellingService spellingService;
+    private final CatalogSync catalogSync;
+    private final HotQueryRecorder hotQueries;
+    private final CatalogETag catalogETag;
+    private final BookRowRenderer rowRenderer;
+    private final HoldService holdService;
+    private final RankingMode defaultRanking;
 
     public BooksController(BookRepository bookRepository,
+                               BookService bookService,
                                LibraryRepository libraryRepository,
-                               BookCopyRepository copyRepository) {
+                               BookCopyRepository copyRepository,
+                               SearchBackend searchBackend,
+                               SearchResultCache searchCache,
+                               BookPageCache pageCache,
+                               SpellingService spellingService,
+                               CatalogSync catalogSync,
+                               HotQueryRecorder hotQueries,
+                               CatalogETag catalogETag,
+                               BookRowRenderer rowRenderer,
+                               HoldService holdService,
+                               @Value("${app.search.ranking:TRIGRAM}") RankingMode defaultRanking) {
         this.bookRepository = bookRepository;
+        this.bookService = bookService;
         this.libraryRepository = libraryRepository;
         this.copyRepository = copyRepository;
+        this.searchBackend = searchBackend;
+        this.searchCache = searchCache;
+        this.pageCache = pageCache;
+        this.spellingService = spellingService;
+        this.catalogSync = catalogSync;
+        this.hotQueries = hotQueries;
+        this.catalogETag = catalogETag;
+        this.rowRenderer = rowRenderer;
+        this.holdService = holdService;
+        this.defaultRanking = defaultRanking;
     }
 
     @GetMapping(value = "/books", produces = MediaType.TEXT_HTML_VALUE)
     public String books(@RequestParam(value = "q", required = false) String q,
                         @RequestParam(value = "pubYear", required = false) Integer pubYear,
                         @RequestParam(value = "page", required = false, defaultValue = "0") Integer page,
-                        Model model) {
+                        @RequestParam(value = "after", required = false) Long after,
+                        @RequestParam(value = "before", required = false) Long before,
+                        @RequestParam(value = "rank", required = false) RankingMode rank,
+                        @RequestParam(value = "availableAt", required = false) Long availableAt,
+                        Model model,
+                        ServletWebRequest webRequest,
+                        Authentication auth) {
+        // Neither the catalog nor any copy changed since the client's copy: skip the queries and the render
+        if (catalogETag.checkNotModified(webRequest, auth)) {
+            return null;
+        }
         List<Library> libraries = libraryRepository.findAll();
 
         String query = (q != null && !q.isBlank()) ? q.trim() : null;
@@ -58,8 +122,8 @@ public class BooksController {
 
         // Only treat as search when a query is provided; year alone is ignored
         boolean isSearch = (query != null);
-        // Guard: extremely short queries can cause seq scans with pg_trgm
-        boolean tooShortSearch = isSearch && query.length() < 3;
+        // Guard: extremely short queries can cause seq scans with pg_trgm; two CJK characters are enough for the bigram index
+        boolean tooShortSearch = isSearch && query.length() < 3 && !SearchText.hasCjkBigram(query);
 
         // Enforce max 10 results per page
         int size = 10;
@@ -68,24 +132,67 @@ public class BooksController {
                 ? PageRequest.of(safePage, size) // ordering handled in the query
                 : PageRequest.of(safePage, size, Sort.by(Sort.Direction.DESC, "id"));
 
-        Page<Book> pageResult;
+        // Per-request override lets us A/B ranking modes on the same catalog
+        RankingMode ranking = rank != null ? rank : defaultRanking;
+
+        // Browsing with a cursor seeks on the primary key and skips count(*) entirely
+        boolean cursorMode = !isSearch && (after != null || before != null);
+
+        Page<BookSummary> pageResult = null;
+        SearchResult.TotalKind totalKind = SearchResult.TotalKind.EXACT;
+        Facets facets = null;
+        boolean hasNextPage = false;
+        String didYouMean = null;
+        List<BookSummary> books;
         long t0 = System.nanoTime();
-        if (isSearch) {
-            if (tooShortSearch) {
-                // avoid hitting DB to prevent full scan
-                pageResult = Page.empty(pageable);
+        if (cursorMode) {
+            books = browseByCursor(after, before, availableAt, size, model).stream().map(BookSummary::of).toList();
+        } else {
+            if (isSearch) {
+                if (tooShortSearch) {
+                    // avoid hitting DB to prevent full scan
+                    pageResult = Page.empty(pageable);
+                } else {
+                    SearchQuery sq = new SearchQuery(query, y, availableAt, ranking);
+                    if (safePage == 0) {
+                        // Replayed by CacheWarmer after the next deploy
+                        hotQueries.record(sq);
+                    }
+                    SearchResult result = search(sq, safePage, pageable);
+                    // A miss on the first page is usually a typo; answer with the corrected query's first page
+                    // now rather than letting the user retype and search again
+                    if (safePage == 0 && result.page().isEmpty()) {
+                        String corrected = spellingService.suggest(query);
+                        if (corrected != null) {
+                            SearchResult alt = search(new SearchQuery(corrected, y, availableAt, ranking), 0, pageable);
+                            if (!alt.page().isEmpty()) {
+                                didYouMean = corrected;
+                                result = alt;
+                            }
+                        }
+                    }
+                    pageResult = result.page();
+                    totalKind = result.totalKind();
+                    hasNextPage = result.hasNext();
+                    facets = result.facets();
+                }
+            } else if (availableAt != null) {
+                // Filtered in the same query via the partial availability index; not cached since loans change it
+                pageResult = bookRepository.findAvailableAt(availableAt, PageRequest.of(safePage, size))
+                        .map(BookSummary::of);
             } else {
-                pageResult = bookRepository.searchFuzzyAnyPaged(query, y, pageable);
+                // Immutable snapshots; edits only drop the pages holding the edited book (see BookPageCache)
+                pageResult = pageCache.get(safePage, size, () -> bookRepository.findAll(pageable));
             }
-        } else {
-            pageResult = bookRepository.findAll(pageable);
+            if (totalKind == SearchResult.TotalKind.EXACT) {
+                hasNextPage = pageResult.hasNext();
+            }
+            books = pageResult.getContent();
         }
         long queryTimeMs = java.util.concurrent.TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0);
 
-        List<Book> books = pageResult.getContent();
-
         // Fetch available copy counts for all books in a single query
-        List<Long> bookIds = books.stream().map(Book::getId).toList();
+        List<Long> bookIds = books.stream().map(BookSummary::id).toList();
         Map<Long, Map<Long, Long>> availabilityMap = new LinkedHashMap<>();
         if (!bookIds.isEmpty()) {
             List<BookCopyRepository.AvailableCount> counts = copyRepository.countAvailableByBookIds(bookIds);
@@ -98,7 +205,7 @@ public class BooksController {
 
         List<BookAvailabilityRow> rows = books.stream().map(book -> {
             Map<Long, Long> perLibrary = new LinkedHashMap<>();
-            Map<Long, Long> byLibrary = availabilityMap.getOrDefault(book.getId(), Map.of());
+            Map<Long, Long> byLibrary = availabilityMap.getOrDefault(book.id(), Map.of());
             for (Library lib : libraries) {
                 long available = byLibrary.getOrDefault(lib.getId(), 0L);
                 perLibrary.put(lib.getId(), available);
@@ -108,12 +215,23 @@ public class BooksController {
 
         model.addAttribute("libraries", libraries);
         model.addAttribute("rows", rows);
+        // Unchanged rows come back as cached markup; see BookRowRenderer
+        model.addAttribute("rowHtml", rowRenderer.render(rows, libraries, webRequest.getRequest().getContextPath()));
         model.addAttribute("q", q);
         model.addAttribute("pubYear", pubYear);
         model.addAttribute("isSearch", isSearch);
         model.addAttribute("searchTooShort", tooShortSearch);
+        model.addAttribute("rank", rank);
+        model.addAttribute("facets", facets);
+        model.addAttribute("didYouMean", didYouMean);
+        model.addAttribute("availableAt", availableAt);
         model.addAttribute("queryTimeMs", queryTimeMs);
-        
+        model.addAttribute("cursorMode", cursorMode);
+        if (cursorMode) {
+            model.addAttribute("totalPages", 0);
+            return "books";
+        }
+
         // Pagination metadata
         int currentPage = pageResult.getNumber();
         int totalPages = pageResult.getTotalPages();
@@ -121,6 +239,9 @@ public class BooksController {
         model.addAttribute("totalPages", totalPages);
         model.addAttribute("totalItems", pageResult.getTotalElements());
         model.addAttribute("pageSize", pageResult.getSize());
+        // Capped or estimated totals are open-ended; Next then follows the fetched look-ahead row
+        model.addAttribute("totalKind", totalKind.name());
+        model.addAttribute("hasNextPage", hasNextPage);
 
         // Build a compact window of page indices to display (0-based)
         // Show up to 4 page links around the current page, with ellipses when appropriate.
@@ -137,16 +258,66 @@ public class BooksController {
                     .toList();
 
             boolean showLeftEllipsis = start > 0;
-            boolean showRightEllipsis = end < (totalPages - 1);
+            boolean showRightEllipsis = end < (totalPages - 1) || totalKind != SearchResult.TotalKind.EXACT;
 
             model.addAttribute("pagesWindow", pagesWindow);
             model.addAttribute("showLeftEllipsis", showLeftEllipsis);
             model.addAttribute("showRightEllipsis", showRightEllipsis);
         }
+        // Next from an offset page continues as a cursor walk
+        if (!isSearch && !books.isEmpty()) {
+            model.addAttribute("nextAfter", books.get(books.size() - 1).id());
+        }
         return "books";
     }
 
-    public record BookAvailabilityRow(Book book, Map<Long, Long> availableByLibraryId) { }
+    // Availability moves with every loan, so filtered searches skip the catalog-versioned cache
+    private SearchResult search(SearchQuery sq, int page, Pageable pageable) {
+        return sq.availableAt() != null
+                ? searchBackend.search(sq, pageable)
+                : searchCache.get(sq, page, pageable.getPageSize(), () -> searchBackend.search(sq, pageable));
+    }
+
+    // Keyset browse, newest first. Fetches one extra row to know whether another page exists.
+    private List<Book> browseByCursor(Long after, Long before, Long availableAt, int size, Model model) {
+        Limit limit = Limit.of(size + 1);
+        List<Book> books;
+        boolean hasNext;
+        boolean hasPrev;
+        if (before != null) {
+            List<Book> newer = availableAt != null
+                    ? bookRepository.findAvailableAtNewerThan(availableAt, before, size + 1)
+                    : bookRepository.findByIdGreaterThanOrderByIdAsc(before, limit);
+            hasPrev = newer.size() > size;
+            books = new ArrayList<>(newer.subList(0, Math.min(size, newer.size())));
+            Collections.reverse(books);
+            hasNext = true;
+        } else {
+            List<Book> older = availableAt != null
+                    ? bookRepository.findAvailableAtOlderThan(availableAt, after, size + 1)
+                    : bookRepository.findByIdLessThanOrderByIdDesc(after, limit);
+            hasNext = older.size() > size;
+            books = older.subList(0, Math.min(size, older.size()));
+            // The extra-row probe the other way: is anything newer than the first row shown
+            hasPrev = !books.isEmpty() && (availableAt != null
+                    ? !bookRepository.findAvailableAtNewerThan(availableAt, books.get(0).getId(), 1).isEmpty()
+                    : bookRepository.existsByIdGreaterThan(books.get(0).getId()));
+        }
+        if (!books.isEmpty()) {
+            if (hasNext) {
+                model.addAttribute("nextAfter", books.get(books.size() - 1).getId());
+            }
+            if (hasPrev) {
+                model.addAttribute("prevBefore", books.get(0).getId());
+            }
+        } else if (after != null) {
+            // Walked past the oldest book; step back to the last full page
+            model.addAttribute("prevBefore", after);
+        }
+        return books;
+    }
+
+    public record BookAvailabilityRow(BookSummary book, Map<Long, Long> availableByLibraryId) { }
 
     @GetMapping(value = "/books/new", produces = MediaType.TEXT_HTML_VALUE)
     @PreAuthorize("hasRole('LIBRARIAN')")
@@ -157,15 +328,18 @@ public class BooksController {
     }
 
     @PostMapping(value = "/books", consumes = MediaType.APPLICATION_FORM_URLENCODED_VALUE)
-    @CacheEvict(value = "booksAll", allEntries = true)
     @PreAuthorize("hasRole('LIBRARIAN')")
     public String createBook(@ModelAttribute Book book) {
-        Book saved = bookRepository.save(book);
+        Book saved = bookService.create(book);
+        catalogSync.bookCreated(saved);
         return "redirect:/books/" + saved.getId();
     }
 
     @GetMapping(value = "/books/{id}", produces = MediaType.TEXT_HTML_VALUE)
-    public String viewBook(@PathVariable Long id, Model model, org.springframework.security.core.Authentication auth) {
+    public String viewBook(@PathVariable Long id, Model model, ServletWebRequest webRequest, Authentication auth) {
+        if (catalogETag.checkNotModified(webRequest, auth)) {
+            return null;
+        }
         Book book = bookRepository.findById(id).orElseThrow();
         List<BookCopy> copies = copyRepository.findByBook(book);
         Set<Long> loanedCopyIds = copies.stream()
@@ -176,6 +350,26 @@ public class BooksController {
         model.addAttribute("book", book);
         model.addAttribute("copies", copies);
         model.addAttribute("loanedCopyIds", loanedCopyIds);
+        // Copies set aside for a member's hold
+        model.addAttribute("heldCopyIds", copies.stream()
+                .filter(c -> c.getCurrentLoanId() == null && c.getHoldId() != null)
+                .map(BookCopy::getId)
+                .collect(Collectors.toSet()));
+        // Libraries offering "borrow any copy"
+        model.addAttribute("freeLibraries", copies.stream()
+                .filter(c -> c.getCurrentLoanId() == null && c.getHoldId() == null)
+                .map(BookCopy::getLibrary)
+                .collect(Collectors.toMap(Library::getId, l -> l, (a, b) -> a, LinkedHashMap::new))
+                .values());
+        // With nothing free, members queue instead of reloading this page
+        model.addAttribute("holdLibraries", copies.stream()
+                .map(BookCopy::getLibrary)
+                .collect(Collectors.toMap(Library::getId, l -> l, (a, b) -> a, LinkedHashMap::new))
+                .values());
+        Hold myHold = auth != null ? holdService.openHold(auth.getName(), id).orElse(null) : null;
+        model.addAttribute("myHold", myHold);
+        model.addAttribute("holdPosition", myHold != null && myHold.getStatus() == HoldStatus.WAITING
+                ? holdService.position(myHold) : null);
         return "book_detail";
     }
 
@@ -192,17 +386,12 @@ public class BooksController {
     }
 
     @PostMapping(value = "/books/{id}", consumes = MediaType.APPLICATION_FORM_URLENCODED_VALUE)
-    @CacheEvict(value = "booksAll", allEntries = true)
     @PreAuthorize("hasRole('LIBRARIAN')")
     public String updateBook(@PathVariable Long id,
                              @ModelAttribute Book form,
-                             org.springframework.security.core.Authentication auth) {
-        Book book = bookRepository.findById(id).orElseThrow();
-        book.setTitle(form.getTitle());
-        book.setAuthor(form.getAuthor());
-        book.setPubYear(form.getPubYear());
-        book.setType(form.getType() != null ? form.getType() : BookType.BOOK);
-        bookRepository.save(book);
+                             Authentication auth) {
+        Book saved = bookService.update(id, form);
+        catalogSync.bookUpdated(saved);
         return "redirect:/books/" + id;
     }
 
@@ -211,14 +400,8 @@ public class BooksController {
     public String addCopy(@PathVariable Long id,
                           @RequestParam("libraryId") Long libraryId,
                           @RequestParam(value = "shelfLocation", required = false) String shelfLocation) {
-        Book book = bookRepository.findById(id).orElseThrow();
-        Library library = libraryRepository.findById(libraryId).orElseThrow();
-
-        BookCopy copy = new BookCopy();
-        copy.setBook(book);
-        copy.setLibrary(library);
-        copy.setShelfLocation(shelfLocation);
-        copyRepository.save(copy);
+        BookCopy saved = bookService.addCopy(id, libraryId, shelfLocation);
+        catalogSync.copiesChanged(saved.getId());
 
         return "redirect:/books/" + id;
     }
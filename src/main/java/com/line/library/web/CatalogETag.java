@@ -0,0 +1,54 @@
+package com.line.library.web;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpSession;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import com.line.library.book.CatalogVersion;
+import com.line.library.copy.CopyVersion;
+
+/**
+ * Strong validators for the catalog pages, computed from counters alone so
+ * a matching If-None-Match is answered with 304 before any query runs or
+ * any template renders.
+ *
+ * The tag covers the catalog version (book writes), the copy version
+ * (copies and loans) and the viewer, since pages carry the user's name,
+ * role-dependent links and a session-bound CSRF token. Both versions are
+ * bumped after commit, so a tag is never newer than the data rendered with it.
+ */
+@Component
+public class CatalogETag {
+
+    private final CatalogVersion catalogVersion;
+    private final CopyVersion copyVersion;
+    // The counters restart with the process; the start time keeps tags from another run or node apart
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    public CatalogETag(CatalogVersion catalogVersion, CopyVersion copyVersion) {
+        this.catalogVersion = catalogVersion;
+        this.copyVersion = copyVersion;
+    }
+
+    // Sets ETag and Cache-Control on the response; true means a 304 has been prepared and nothing should render
+    public boolean checkNotModified(ServletWebRequest request, Authentication auth) {
+        String etag = "\"" + epoch + "-" + catalogVersion.current() + "-" + copyVersion.current()
+                + "-" + viewer(request.getRequest(), auth) + "\"";
+        if (request.getResponse() != null) {
+            // Revalidate on every view, and keep per-user pages out of shared caches
+            request.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+        }
+        return request.checkNotModified(etag);
+    }
+
+    private static String viewer(HttpServletRequest request, Authentication auth) {
+        HttpSession session = request.getSession(false);
+        String name = auth != null ? auth.getName() : "";
+        String sessionId = session != null ? session.getId() : "";
+        return Integer.toHexString((name + '\n' + sessionId).hashCode());
+    }
+}
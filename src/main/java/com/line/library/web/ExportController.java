@@ -0,0 +1,53 @@
+package com.line.library.web;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import com.line.library.export.CatalogExportService;
+import com.line.library.export.ExportFormat;
+import com.line.library.search.SearchText;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+@Controller
+public class ExportController {
+
+    private final CatalogExportService exportService;
+
+    public ExportController(CatalogExportService exportService) {
+        this.exportService = exportService;
+    }
+
+    // Writes straight to the response so the first rows go out while the cursor is still reading
+    @GetMapping("/books/export")
+    @PreAuthorize("hasRole('LIBRARIAN')")
+    public void export(@RequestParam(value = "q", required = false) String q,
+                       @RequestParam(value = "pubYear", required = false) Integer pubYear,
+                       @RequestParam(value = "availableAt", required = false) Long availableAt,
+                       @RequestParam(value = "availability", required = false, defaultValue = "false") boolean availability,
+                       @RequestParam(value = "format", required = false, defaultValue = "CSV") ExportFormat format,
+                       HttpServletResponse response) throws IOException {
+        String query = (q != null && !q.isBlank()) ? q.trim() : null;
+        // Same guard as /books: a short query is refused rather than widened to the whole catalog
+        if (query != null && query.length() < 3 && !SearchText.hasCjkBigram(query)) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Search query is too short");
+            return;
+        }
+
+        response.setContentType(format.contentType());
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"books." + format.extension() + "\"");
+
+        Writer out = response.getWriter();
+        exportService.export(query, pubYear, availableAt, availability, format, out);
+        out.flush();
+    }
+}
@@ -0,0 +1,67 @@
+package com.line.library.web;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+
+import com.line.library.copy.CopyVersion;
+import com.line.library.hold.HoldService;
+import com.line.library.sync.CatalogSync;
+
+@Controller
+public class HoldController {
+
+    private static final Logger log = LoggerFactory.getLogger(HoldController.class);
+
+    private final HoldService holdService;
+    private final CatalogSync catalogSync;
+    private final CopyVersion copyVersion;
+
+    public HoldController(HoldService holdService, CatalogSync catalogSync, CopyVersion copyVersion) {
+        this.holdService = holdService;
+        this.catalogSync = catalogSync;
+        this.copyVersion = copyVersion;
+    }
+
+    // Join the queue for a book; no libraryId means a copy at any library
+    @PostMapping("/books/{bookId}/holds")
+    public String placeHold(@PathVariable Long bookId,
+                            @RequestParam(value = "libraryId", required = false) Long libraryId,
+                            Authentication auth,
+                            RedirectAttributes redirectAttributes) {
+        try {
+            holdService.place(bookId, libraryId, auth.getName());
+            // Only this member's view of the book changed; revalidate it on this node (ETags are per node)
+            copyVersion.bump();
+            redirectAttributes.addAttribute("holdSuccess", "true");
+        } catch (IllegalStateException ex) {
+            redirectAttributes.addAttribute("holdError", ex.getMessage());
+        } catch (Exception ex) {
+            log.error("Unexpected error while placing a hold on book {}", bookId, ex);
+            redirectAttributes.addAttribute("holdError", "Unable to place a hold on this book");
+        }
+        return "redirect:/books/" + bookId;
+    }
+
+    @PostMapping("/holds/{holdId}/cancel")
+    public String cancelHold(@PathVariable Long holdId,
+                             Authentication auth,
+                             RedirectAttributes redirectAttributes) {
+        try {
+            holdService.cancel(holdId, auth.getName())
+                    .ifPresentOrElse(catalogSync::copiesChanged, copyVersion::bump);
+            redirectAttributes.addAttribute("holdCancelled", "true");
+        } catch (IllegalStateException ex) {
+            redirectAttributes.addAttribute("holdError", ex.getMessage());
+        } catch (Exception ex) {
+            log.error("Unexpected error while cancelling hold {}", holdId, ex);
+            redirectAttributes.addAttribute("holdError", "Unable to cancel this hold");
+        }
+        return "redirect:/loans";
+    }
+}
@@ -1,23 +1,43 @@
 package com.line.library.web;
 
+import java.util.List;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import com.line.library.loan.BulkReturn;
+import com.line.library.loan.CheckoutOutcome;
+import com.line.library.loan.Loan;
+import com.line.library.loan.LoanCheckout;
 import com.line.library.loan.LoanService;
+import com.line.library.loan.ReturnOutcome;
+import com.line.library.sync.CatalogSync;
 
 @Controller
 public class LoanController {
 
     private final LoanService loanService;
+    private final LoanCheckout loanCheckout;
+    private final BulkReturn bulkReturn;
+    private final CatalogSync catalogSync;
     private static final Logger log = LoggerFactory.getLogger(LoanController.class);
 
-    public LoanController(LoanService loanService) {
+    public LoanController(LoanService loanService, LoanCheckout loanCheckout, BulkReturn bulkReturn,
+                          CatalogSync catalogSync) {
         this.loanService = loanService;
+        this.loanCheckout = loanCheckout;
+        this.bulkReturn = bulkReturn;
+        this.catalogSync = catalogSync;
     }
 
     @PostMapping("/books/{bookId}/copies/{copyId}/loan")
@@ -27,7 +47,8 @@ public class LoanController {
                              RedirectAttributes redirectAttributes) {
         try {
             String email = auth.getName();
-            loanService.loanCopy(copyId, email);
+            loanCheckout.loanCopy(copyId, email);
+            catalogSync.copiesChanged(copyId);
             redirectAttributes.addAttribute("loanSuccess", "true");
         } catch (IllegalStateException ex) {
             redirectAttributes.addAttribute("loanError", ex.getMessage());
@@ -38,13 +59,63 @@ public class LoanController {
         return "redirect:/books/" + bookId;
     }
 
+    // Borrow whichever copy is free at the chosen library
+    @PostMapping("/books/{bookId}/loan")
+    public String loanAnyCopy(@PathVariable Long bookId,
+                              @RequestParam("libraryId") Long libraryId,
+                              Authentication auth,
+                              RedirectAttributes redirectAttributes) {
+        try {
+            Loan loan = loanService.loanAnyCopy(bookId, libraryId, auth.getName());
+            catalogSync.copiesChanged(loan.getCopy().getId());
+            redirectAttributes.addAttribute("loanSuccess", "true");
+        } catch (IllegalStateException ex) {
+            redirectAttributes.addAttribute("loanError", ex.getMessage());
+        } catch (Exception ex) {
+            log.error("Unexpected error while loaning a copy of book {} at library {}", bookId, libraryId, ex);
+            redirectAttributes.addAttribute("loanError", "Unable to loan this book");
+        }
+        return "redirect:/books/" + bookId;
+    }
+
+    // Desk checkout of a stack of copies for the signed-in member; one result per copy (copyId=1&copyId=2...)
+    @PostMapping(value = "/loans/checkout", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public ResponseEntity<List<CheckoutOutcome>> checkout(@RequestParam("copyId") List<Long> copyIds,
+                                                          Authentication auth) {
+        if (copyIds.isEmpty() || copyIds.size() > LoanService.MAX_BATCH_COPIES) {
+            return ResponseEntity.badRequest().build();
+        }
+        List<CheckoutOutcome> outcomes = loanService.loanCopies(copyIds, auth.getName());
+        for (CheckoutOutcome o : outcomes) {
+            if (o.isLoaned()) {
+                catalogSync.copiesChanged(o.copyId());
+            }
+        }
+        return ResponseEntity.ok(outcomes);
+    }
+
+    // Desk return of a cart of scanned copies, whoever borrowed them; one result per copy (copyId=1&copyId=2...)
+    @PostMapping(value = "/loans/returns", produces = MediaType.APPLICATION_JSON_VALUE)
+    @PreAuthorize("hasRole('LIBRARIAN')")
+    @ResponseBody
+    public ResponseEntity<List<ReturnOutcome>> returnCopies(@RequestParam("copyId") List<Long> copyIds) {
+        if (copyIds.isEmpty() || copyIds.size() > BulkReturn.MAX_COPIES) {
+            return ResponseEntity.badRequest().build();
+        }
+        List<ReturnOutcome> outcomes = bulkReturn.returnCopies(copyIds);
+        catalogSync.copiesChanged(outcomes.stream().filter(ReturnOutcome::isReturned).map(ReturnOutcome::copyId).toList());
+        return ResponseEntity.ok(outcomes);
+    }
+
     @PostMapping("/loans/{loanId}/return")
     public String returnLoan(@PathVariable Long loanId,
                              Authentication auth,
                              RedirectAttributes redirectAttributes) {
         try {
             String email = auth.getName();
-            loanService.returnLoan(loanId, email);
+            Loan loan = loanService.returnLoan(loanId, email);
+            catalogSync.copiesChanged(loan.getCopy().getId());
             redirectAttributes.addAttribute("returnSuccess", "true");
         } catch (IllegalStateException ex) {
             redirectAttributes.addAttribute("returnError", ex.getMessage());
@@ -12,6 +12,9 @@ import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 
+import com.line.library.hold.Hold;
+import com.line.library.hold.HoldService;
+import com.line.library.hold.HoldStatus;
 import com.line.library.loan.Loan;
 import com.line.library.loan.LoanRepository;
 import com.line.library.user.User;
@@ -22,10 +25,12 @@ public class MyLoanController {
 
     private final UserRepository userRepository;
     private final LoanRepository loanRepository;
+    private final HoldService holdService;
 
-    public MyLoanController(UserRepository userRepository, LoanRepository loanRepository) {
+    public MyLoanController(UserRepository userRepository, LoanRepository loanRepository, HoldService holdService) {
         this.userRepository = userRepository;
         this.loanRepository = loanRepository;
+        this.holdService = holdService;
     }
 
     @GetMapping(value = {"/loans", "/info"}, produces = MediaType.TEXT_HTML_VALUE)
@@ -48,6 +53,12 @@ public class MyLoanController {
         model.addAttribute("pastLoans", pastLoans);
         model.addAttribute("hasOverdue", hasOverdue);
 
+        List<Hold> holds = holdService.openHolds(user);
+        model.addAttribute("holds", holds);
+        model.addAttribute("holdPositions", holds.stream()
+                .filter(h -> h.getStatus() == HoldStatus.WAITING)
+                .collect(Collectors.toMap(Hold::getId, holdService::position)));
+
         return "my_loans";
     }
 }
@@ -0,0 +1,27 @@
+package com.line.library.web;
+
+import java.util.List;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.line.library.search.SuggestService;
+import com.line.library.search.Suggestion;
+
+@RestController
+public class SuggestController {
+
+    private final SuggestService suggestService;
+
+    public SuggestController(SuggestService suggestService) {
+        this.suggestService = suggestService;
+    }
+
+    // Typeahead for the search box; works from the first character and never queries Postgres
+    @GetMapping(value = "/books/suggest", produces = MediaType.APPLICATION_JSON_VALUE)
+    public List<Suggestion> suggest(@RequestParam(value = "prefix", required = false) String prefix) {
+        return suggestService.suggest(prefix);
+    }
+}
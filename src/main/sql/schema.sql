@@ -1,3 +1,8 @@
+DROP TABLE IF EXISTS search_hot_queries CASCADE;
+DROP TABLE IF EXISTS outbox_offsets CASCADE;
+DROP TABLE IF EXISTS outbox_events CASCADE;
+DROP TABLE IF EXISTS holds CASCADE;
+DROP TABLE IF EXISTS user_loan_counters CASCADE;
 DROP TABLE IF EXISTS loans CASCADE;
 DROP TABLE IF EXISTS book_copies CASCADE;
 DROP TABLE IF EXISTS books CASCADE;
@@ -51,6 +56,19 @@ AS $$
   SELECT unaccent('unaccent', $1)
 $$;
 
+-- Distinct CJK character bigrams of a string (Han, kana, Hangul). Trigrams are too sparse for
+-- Chinese names and titles, which are often two or three characters long
+CREATE OR REPLACE FUNCTION cjk_bigrams(text)
+RETURNS text[]
+LANGUAGE sql
+IMMUTABLE
+PARALLEL SAFE
+AS $$
+  SELECT coalesce(array_agg(DISTINCT g), '{}')
+  FROM (SELECT substr($1, i, 2) AS g FROM generate_series(1, length($1) - 1) AS i) s
+  WHERE g ~ '^[\u3040-\u30ff\u3400-\u4dbf\u4e00-\u9fff\uac00-\ud7af\uf900-\ufaff]{2}$'
+$$;
+
 CREATE TABLE IF NOT EXISTS books (
   id          INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
   title       TEXT NOT NULL,
@@ -59,24 +77,46 @@ CREATE TABLE IF NOT EXISTS books (
   type        book_type NOT NULL,       -- 'BOOK' or 'PUBLICATION'
   search_text TEXT GENERATED ALWAYS AS (
     immutable_unaccent(lower(title || ' ' || author))
+  ) STORED,
+  -- Full-text vector for the HYBRID ranking mode; 'simple' config since the catalog is multilingual
+  search_tsv TSVECTOR GENERATED ALWAYS AS (
+    to_tsvector('simple', immutable_unaccent(lower(title || ' ' || author)))
   ) STORED
 );
 
 CREATE INDEX IF NOT EXISTS books_search_text_trgm_gin ON books USING GIN (search_text gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS books_search_tsv_gin ON books USING GIN (search_tsv);
+CREATE INDEX IF NOT EXISTS books_search_cjk_gin ON books USING GIN (cjk_bigrams(search_text));
 CREATE INDEX IF NOT EXISTS books_pub_year_btree ON books (pub_year);
 
 
+-- Frequent first-page searches, replayed by the startup warm-up
+CREATE TABLE IF NOT EXISTS search_hot_queries (
+  id       BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  query    TEXT NOT NULL,
+  pub_year INT,
+  ranking  TEXT NOT NULL,
+  hits     BIGINT NOT NULL DEFAULT 0,
+  CONSTRAINT uq_search_hot_queries UNIQUE NULLS NOT DISTINCT (query, pub_year, ranking)
+);
+CREATE INDEX IF NOT EXISTS idx_search_hot_queries_hits ON search_hot_queries (hits DESC);
+
+
 CREATE TABLE IF NOT EXISTS book_copies (
   id             INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
   book_id        INTEGER NOT NULL REFERENCES books(id)     ON DELETE RESTRICT,
   library_id     INTEGER NOT NULL REFERENCES libraries(id) ON DELETE RESTRICT,
   shelf_location TEXT,
   -- Denormalized pointer to the active loan (nullable)
-  current_loan_id BIGINT
+  current_loan_id BIGINT,
+  -- Hold the copy is set aside for until pickup (nullable); a free copy has neither
+  hold_id        BIGINT,
+  -- Optimistic-lock version (JPA @Version), bumped on every write
+  version        BIGINT NOT NULL DEFAULT 0
 );
 
 CREATE INDEX IF NOT EXISTS idx_book_copies_book_id ON book_copies (book_id);
-CREATE INDEX IF NOT EXISTS idx_copies_avail_book_lib ON book_copies (book_id, library_id) WHERE current_loan_id IS NULL;
+CREATE INDEX IF NOT EXISTS idx_copies_avail_book_lib ON book_copies (book_id, library_id) WHERE current_loan_id IS NULL AND hold_id IS NULL;
 
 
 CREATE TABLE IF NOT EXISTS loans (
@@ -91,8 +131,60 @@ CREATE TABLE IF NOT EXISTS loans (
   CONSTRAINT returned_after_loan CHECK (returned_at IS NULL OR returned_at >= loaned_at)
 );
 
+-- Active loans per user and type, maintained with every loan/return so limit checks are one conditional UPDATE.
+-- Rows are created on a user's first loan; ActiveLoanCountReconciler repairs drift nightly.
+CREATE TABLE IF NOT EXISTS user_loan_counters (
+  user_id             INTEGER PRIMARY KEY REFERENCES users(id) ON DELETE CASCADE,
+  active_books        BIGINT NOT NULL DEFAULT 0 CHECK (active_books >= 0),
+  active_publications BIGINT NOT NULL DEFAULT 0 CHECK (active_publications >= 0)
+);
+
 -- Enforce at most one active (unreturned) loan per copy
 CREATE UNIQUE INDEX IF NOT EXISTS uq_loans_active_copy ON loans (copy_id) WHERE returned_at IS NULL;
 CREATE INDEX IF NOT EXISTS idx_loans_user_returned_due ON loans (user_id, returned_at DESC, due_at ASC);
 CREATE INDEX IF NOT EXISTS idx_loans_due_pending ON loans (due_at) WHERE returned_at IS NULL AND due_notice_sent_at IS NULL;
 
+-- Holds: FIFO queue per book (optionally per library). A returned copy is set aside for the head of the queue
+-- in the return's transaction (status READY, book_copies.hold_id); HoldExpiryScheduler expires unclaimed ones.
+CREATE TABLE IF NOT EXISTS holds (
+  id          BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  user_id     INTEGER NOT NULL REFERENCES users(id)     ON DELETE CASCADE,
+  book_id     INTEGER NOT NULL REFERENCES books(id)     ON DELETE CASCADE,
+  library_id  INTEGER REFERENCES libraries(id)          ON DELETE CASCADE,
+  status      TEXT NOT NULL DEFAULT 'WAITING'
+              CHECK (status IN ('WAITING', 'READY', 'FULFILLED', 'CANCELLED', 'EXPIRED')),
+  placed_at   TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+  copy_id     INTEGER REFERENCES book_copies(id)        ON DELETE SET NULL,
+  ready_at    TIMESTAMPTZ,
+  expires_at  TIMESTAMPTZ,
+  closed_at   TIMESTAMPTZ,
+  CONSTRAINT ready_has_copy CHECK (status <> 'READY' OR (copy_id IS NOT NULL AND expires_at IS NOT NULL))
+);
+
+-- One open hold per member and book
+CREATE UNIQUE INDEX IF NOT EXISTS uq_holds_open_user_book ON holds (user_id, book_id) WHERE status IN ('WAITING', 'READY');
+CREATE INDEX IF NOT EXISTS idx_holds_queue ON holds (book_id, placed_at, id) WHERE status = 'WAITING';
+CREATE INDEX IF NOT EXISTS idx_holds_ready_expiry ON holds (expires_at) WHERE status = 'READY';
+CREATE INDEX IF NOT EXISTS idx_holds_user ON holds (user_id) WHERE status IN ('WAITING', 'READY');
+
+-- Transactional outbox: loan, hold and catalog events appended in the writing transaction (Outbox), no FKs so
+-- rows outlive what they describe. OutboxRelay reads them by (tx_id, id) and keeps one offset per subscriber.
+CREATE TABLE IF NOT EXISTS outbox_events (
+  id              BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  -- Writing transaction; the relay reads in (tx_id, id) order below pg_snapshot_xmin (see OutboxRelay)
+  tx_id           BIGINT NOT NULL DEFAULT pg_current_xact_id()::text::bigint,
+  recorded_at     TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+  aggregate_type  TEXT NOT NULL,
+  aggregate_id    BIGINT NOT NULL,
+  event_type      TEXT NOT NULL
+                  CHECK (event_type IN ('LOAN_CREATED', 'LOAN_RETURNED', 'HOLD_READY', 'BOOK_CREATED', 'BOOK_UPDATED', 'COPY_ADDED')),
+  payload         TEXT NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_outbox_events_tx ON outbox_events (tx_id, id);
+
+CREATE TABLE IF NOT EXISTS outbox_offsets (
+  subscriber  TEXT PRIMARY KEY,
+  last_tx_id  BIGINT NOT NULL DEFAULT 0,
+  last_id     BIGINT NOT NULL DEFAULT 0,
+  updated_at  TIMESTAMPTZ
+);
@@ -0,0 +1,97 @@
+package com.line.library.book;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class BookPageCacheTest {
+
+    private final BookPageCache cache = new BookPageCache(new SimpleMeterRegistry(), 1 << 20);
+    private final AtomicInteger loads = new AtomicInteger();
+    // Newest first, like the browse view: ids 25..1
+    private final List<Book> catalog = new ArrayList<>();
+
+    BookPageCacheTest() {
+        for (long id = 25; id >= 1; id--) {
+            catalog.add(book(id, "Title " + id));
+        }
+    }
+
+    @Test
+    void edit_dropsOnlyThePageHoldingTheBook() {
+        for (int p = 0; p < 3; p++) {
+            get(p);
+        }
+        catalog.set(12, book(13L, "Renamed"));
+
+        cache.onBookUpdated(catalog.get(12));
+
+        assertThat(get(0).getContent()).extracting(BookSummary::title).doesNotContain("Renamed");
+        assertThat(get(1).getContent()).extracting(BookSummary::title).contains("Renamed");
+        assertThat(get(2).getContent()).hasSize(5);
+        assertThat(loads).hasValue(4);
+    }
+
+    @Test
+    void insert_shiftsCachedPagesWithoutReloading() {
+        for (int p = 0; p < 3; p++) {
+            get(p);
+        }
+        Book added = book(26L, "New");
+        catalog.add(0, added);
+
+        cache.onBookInserted(added);
+
+        assertThat(ids(get(0))).containsExactly(26L, 25L, 24L, 23L, 22L, 21L, 20L, 19L, 18L, 17L);
+        assertThat(ids(get(1))).containsExactly(16L, 15L, 14L, 13L, 12L, 11L, 10L, 9L, 8L, 7L);
+        assertThat(ids(get(2))).containsExactly(6L, 5L, 4L, 3L, 2L, 1L);
+        assertThat(get(2).getTotalElements()).isEqualTo(26);
+        assertThat(loads).hasValue(3);
+    }
+
+    @Test
+    void insert_dropsPagesPastAGapInTheChain() {
+        get(0);
+        get(2);
+        Book added = book(26L, "New");
+        catalog.add(0, added);
+
+        cache.onBookInserted(added);
+        get(0);
+        get(2);
+
+        assertThat(loads).hasValue(3);
+        assertThat(ids(get(2))).startsWith(6L);
+    }
+
+    private Page<BookSummary> get(int page) {
+        return cache.get(page, 10, () -> {
+            loads.incrementAndGet();
+            int from = Math.min(page * 10, catalog.size());
+            int to = Math.min(from + 10, catalog.size());
+            return new PageImpl<>(List.copyOf(catalog.subList(from, to)), PageRequest.of(page, 10), catalog.size());
+        });
+    }
+
+    private static List<Long> ids(Page<BookSummary> page) {
+        return page.getContent().stream().map(BookSummary::id).toList();
+    }
+
+    private static Book book(long id, String title) {
+        Book b = new Book();
+        b.setId(id);
+        b.setTitle(title);
+        b.setAuthor("Author");
+        b.setType(BookType.BOOK);
+        return b;
+    }
+}
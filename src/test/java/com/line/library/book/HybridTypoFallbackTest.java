@@ -0,0 +1,79 @@
+package com.line.library.book;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+/**
+ * The hybrid match is PostgreSQL SQL (tsvector, pg_trgm), so this runs
+ * against the docker-compose database (or SPRING_DATASOURCE_URL/USERNAME/PASSWORD)
+ * and is skipped when it is not reachable.
+ */
+class HybridTypoFallbackTest {
+
+    private static final String URL = env("SPRING_DATASOURCE_URL", "jdbc:postgresql://localhost:5432/library");
+    private static final String USER = env("SPRING_DATASOURCE_USERNAME", "library");
+    private static final String PASSWORD = env("SPRING_DATASOURCE_PASSWORD", "library");
+    private static final String TITLE = "The Extraordinary Adventures of a Lighthouse Keeper in the North Atlantic";
+
+    private JdbcTemplate jdbc;
+    private NamedParameterJdbcTemplate named;
+    private long bookId;
+
+    @BeforeEach
+    void seed() {
+        assumeTrue(databaseReachable(), "Postgres not reachable at " + URL);
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(URL, USER, PASSWORD);
+        jdbc = new JdbcTemplate(dataSource);
+        named = new NamedParameterJdbcTemplate(dataSource);
+        bookId = jdbc.queryForObject(
+                "insert into books (title, author, type) values (?, 'Hybrid Typo', 'BOOK') returning id", Long.class, TITLE);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        if (jdbc != null) {
+            jdbc.update("delete from books where id = ?", bookId);
+        }
+    }
+
+    @Test
+    void oneLetterTypo_inLongTitle_stillMatches() {
+        String typo = "lighthoase";
+
+        List<Long> ids = named.queryForList(
+                "select b.id from books b where " + BookRepository.HYBRID_MATCH + BookRepository.HYBRID_ORDER,
+                new MapSqlParameterSource("q", typo), Long.class);
+
+        assertThat(ids).contains(bookId);
+        // Against the whole search_text the same typo is far below the % threshold
+        assertThat(jdbc.queryForObject("select similarity(search_text, ?) from books where id = ?",
+                Double.class, typo, bookId)).isLessThan(0.3);
+    }
+
+    private static boolean databaseReachable() {
+        DriverManager.setLoginTimeout(2);
+        try (Connection ignored = DriverManager.getConnection(URL, USER, PASSWORD)) {
+            return true;
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+
+    private static String env(String name, String fallback) {
+        String value = System.getenv(name);
+        return value != null ? value : fallback;
+    }
+}
@@ -0,0 +1,69 @@
+package com.line.library.config;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+@TestPropertySource(properties = {
+        // Avoid executing Postgres-specific schema.sql in embedded tests
+        "spring.sql.init.mode=never",
+        // Have Hibernate create tables from entities
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        // LISTEN/NOTIFY and the outbox horizon need PostgreSQL
+        "app.cache.notify.enabled=false",
+        "app.outbox.relay.enabled=false"
+})
+class ActuatorSecurityTest {
+
+    @Autowired MockMvc mockMvc;
+    @Autowired ApplicationContext context;
+
+    // CacheWarmer runs before the app reports ready, so this is the state during warm-up
+    @Test
+    void readiness_anonymous_serviceUnavailable_whileWarmingUp() throws Exception {
+        AvailabilityChangeEvent.publish(context, ReadinessState.REFUSING_TRAFFIC);
+        try {
+            mockMvc.perform(get("/actuator/health/readiness"))
+                    .andExpect(status().isServiceUnavailable());
+        } finally {
+            AvailabilityChangeEvent.publish(context, ReadinessState.ACCEPTING_TRAFFIC);
+        }
+        mockMvc.perform(get("/actuator/health/readiness"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void metrics_forbidden_whenMember() throws Exception {
+        mockMvc.perform(get("/actuator/metrics").with(user("mem").roles("MEMBER")))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void metrics_ok_whenLibrarian() throws Exception {
+        mockMvc.perform(get("/actuator/metrics").with(user("lib").roles("LIBRARIAN")))
+                .andExpect(status().isOk());
+    }
+
+    // Would evict every cache; not exposed to anyone
+    @Test
+    void cachesEndpoint_notExposed() throws Exception {
+        mockMvc.perform(delete("/actuator/caches").with(user("lib").roles("LIBRARIAN")).with(csrf()))
+                .andExpect(status().isNotFound());
+    }
+}
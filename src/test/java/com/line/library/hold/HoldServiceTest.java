@@ -0,0 +1,192 @@
+package com.line.library.hold;
+
+import static com.line.library.testutil.TestDataFactory.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.line.library.book.Book;
+import com.line.library.book.BookRepository;
+import com.line.library.book.BookType;
+import com.line.library.copy.BookCopy;
+import com.line.library.copy.BookCopyRepository;
+import com.line.library.library.Library;
+import com.line.library.library.LibraryRepository;
+import com.line.library.loan.ActiveLoanCounters;
+import com.line.library.loan.Loan;
+import com.line.library.loan.LoanRepository;
+import com.line.library.loan.LoanService;
+import com.line.library.loan.UserLoanCounterRepository;
+import com.line.library.outbox.Outbox;
+import com.line.library.user.User;
+import com.line.library.user.UserRepository;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        // Embedded H2 in PostgreSQL mode, which accepts the loan counters' INSERT ... ON CONFLICT DO NOTHING
+        "spring.datasource.url=jdbc:h2:mem:holdservice;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+        // Avoid executing Postgres-specific schema.sql in embedded tests
+        "spring.sql.init.mode=never",
+        // Have Hibernate create tables from entities
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+class HoldServiceTest {
+
+    @Autowired HoldRepository holdRepository;
+    @Autowired LoanRepository loanRepository;
+    @Autowired BookCopyRepository copyRepository;
+    @Autowired UserRepository userRepository;
+    @Autowired BookRepository bookRepository;
+    @Autowired LibraryRepository libraryRepository;
+    @Autowired UserLoanCounterRepository counterRepository;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired TestEntityManager entityManager;
+
+    private HoldService holdService;
+    private LoanService loanService;
+    private User alice;
+    private User bob;
+    private User carol;
+    private Library lib;
+    private Book book;
+    private BookCopy copy;
+
+    @BeforeEach
+    void setUp() {
+        Outbox outbox = new Outbox(jdbcTemplate, new ObjectMapper());
+        holdService = new HoldService(holdRepository, bookRepository, libraryRepository, userRepository, copyRepository,
+                new HoldExpiryWheel(1000, 60), outbox, Duration.ofDays(3));
+        loanService = new LoanService(loanRepository, copyRepository, userRepository, jdbcTemplate,
+                new ActiveLoanCounters(counterRepository, loanRepository), holdService, outbox);
+        alice = persistUser(userRepository, "Alice", "alice@example.com");
+        bob = persistUser(userRepository, "Bob", "bob@example.com");
+        carol = persistUser(userRepository, "Carol", "carol@example.com");
+        lib = persistLibrary(libraryRepository, "Main");
+        book = persistBook(bookRepository, BookType.BOOK);
+        copy = persistCopy(copyRepository, book, lib);
+    }
+
+    @Test
+    void return_setsCopyAsideForHeadOfQueue_untilPickedUp() {
+        Loan loan = loanService.loanCopy(copy.getId(), alice.getEmail());
+        Hold bobs = holdService.place(book.getId(), null, bob.getEmail());
+        Hold carols = holdService.place(book.getId(), lib.getId(), carol.getEmail());
+        assertThat(holdService.position(carols)).isEqualTo(2);
+
+        loanService.returnLoan(loan.getId(), alice.getEmail());
+
+        assertThat(reload(bobs).getStatus()).isEqualTo(HoldStatus.READY);
+        assertThat(reload(bobs).getExpiresAt()).isAfter(Instant.now().plus(Duration.ofDays(2)));
+        assertThat(copyRepository.findById(copy.getId()).orElseThrow().getHoldId()).isEqualTo(bobs.getId());
+        assertThat(holdService.position(reload(carols))).isEqualTo(1);
+        // Not free for anyone else, and no longer counted as available
+        assertThat(copyRepository.countAvailableByBookIds(java.util.List.of(book.getId()))).isEmpty();
+        assertThatThrownBy(() -> loanService.loanCopy(copy.getId(), carol.getEmail()))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage(HoldService.ON_HOLD);
+
+        Loan picked = loanService.loanCopy(copy.getId(), bob.getEmail());
+
+        assertThat(picked.getUser().getId()).isEqualTo(bob.getId());
+        assertThat(reload(bobs).getStatus()).isEqualTo(HoldStatus.FULFILLED);
+        assertThat(copyRepository.findById(copy.getId()).orElseThrow().getHoldId()).isNull();
+    }
+
+    @Test
+    void offerAll_setsAsideOnlyCopiesOfBooksWithWaitingHolds() {
+        Loan loan = loanService.loanCopy(copy.getId(), alice.getEmail());
+        Hold bobs = holdService.place(book.getId(), null, bob.getEmail());
+        BookCopy other = persistCopy(copyRepository, persistBook(bookRepository, BookType.BOOK), lib);
+        // Closed behind the service's back, as BulkReturn does in SQL
+        jdbcTemplate.update("update loans set returned_at = current_timestamp where id = ?", loan.getId());
+        jdbcTemplate.update("update book_copies set current_loan_id = null where id = ?", copy.getId());
+        entityManager.clear();
+
+        assertThat(holdService.offerAll(java.util.Map.of(copy.getId(), book.getId(), other.getId(), other.getBook().getId())))
+                .isEqualTo(1);
+
+        assertThat(reload(bobs).getStatus()).isEqualTo(HoldStatus.READY);
+        assertThat(copyRepository.findById(copy.getId()).orElseThrow().getHoldId()).isEqualTo(bobs.getId());
+        assertThat(copyRepository.findById(other.getId()).orElseThrow().getHoldId()).isNull();
+    }
+
+    @Test
+    void expire_passesCopyToNextInLine() {
+        Loan loan = loanService.loanCopy(copy.getId(), alice.getEmail());
+        Hold bobs = holdService.place(book.getId(), null, bob.getEmail());
+        Hold carols = holdService.place(book.getId(), null, carol.getEmail());
+        loanService.returnLoan(loan.getId(), alice.getEmail());
+        // Not due yet: nothing happens
+        assertThat(holdService.expire(bobs.getId())).isEmpty();
+
+        Hold ready = reload(bobs);
+        ready.setExpiresAt(Instant.now().minusSeconds(1));
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThat(holdService.expire(bobs.getId())).contains(copy.getId());
+
+        assertThat(reload(bobs).getStatus()).isEqualTo(HoldStatus.EXPIRED);
+        assertThat(reload(carols).getStatus()).isEqualTo(HoldStatus.READY);
+        assertThat(copyRepository.findById(copy.getId()).orElseThrow().getHoldId()).isEqualTo(carols.getId());
+    }
+
+    @Test
+    void cancelReadyHold_withNobodyWaiting_putsCopyBackOnShelf() {
+        Loan loan = loanService.loanCopy(copy.getId(), alice.getEmail());
+        Hold bobs = holdService.place(book.getId(), null, bob.getEmail());
+        loanService.returnLoan(loan.getId(), alice.getEmail());
+
+        assertThatThrownBy(() -> holdService.cancel(bobs.getId(), carol.getEmail()))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(holdService.cancel(bobs.getId(), bob.getEmail())).contains(copy.getId());
+
+        assertThat(reload(bobs).getStatus()).isEqualTo(HoldStatus.CANCELLED);
+        assertThat(copyRepository.findById(copy.getId()).orElseThrow().getHoldId()).isNull();
+        assertThat(copyRepository.countAvailableByBookIds(java.util.List.of(book.getId()))).hasSize(1);
+    }
+
+    @Test
+    void place_refusedWhileCopyIsFree_orAlreadyQueued() {
+        assertThatThrownBy(() -> holdService.place(book.getId(), null, bob.getEmail()))
+                .hasMessage("A copy is available now; borrow it instead");
+
+        loanService.loanCopy(copy.getId(), alice.getEmail());
+        holdService.place(book.getId(), null, bob.getEmail());
+
+        assertThatThrownBy(() -> holdService.place(book.getId(), lib.getId(), bob.getEmail()))
+                .hasMessage("You already have a hold on this book");
+    }
+
+    @Test
+    void returnAtOtherLibrary_skipsHoldsForThisLibrary() {
+        Library branch = persistLibrary(libraryRepository, "Branch");
+        BookCopy branchCopy = persistCopy(copyRepository, book, branch);
+        loanService.loanCopy(copy.getId(), alice.getEmail());
+        Loan branchLoan = loanService.loanCopy(branchCopy.getId(), carol.getEmail());
+        Hold bobs = holdService.place(book.getId(), lib.getId(), bob.getEmail());
+
+        loanService.returnLoan(branchLoan.getId(), carol.getEmail());
+
+        assertThat(reload(bobs).getStatus()).isEqualTo(HoldStatus.WAITING);
+        assertThat(copyRepository.findById(branchCopy.getId()).orElseThrow().getHoldId()).isNull();
+    }
+
+    private Hold reload(Hold hold) {
+        entityManager.flush();
+        return holdRepository.findById(hold.getId()).orElseThrow();
+    }
+}
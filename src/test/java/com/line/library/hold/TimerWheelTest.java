@@ -0,0 +1,65 @@
+package com.line.library.hold;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class TimerWheelTest {
+
+    @Test
+    void advance_returnsEntriesOnceTheirDeadlinePasses() {
+        TimerWheel wheel = new TimerWheel(100, 8, 0);
+        wheel.schedule(1, 250);
+        wheel.schedule(2, 300);
+        wheel.schedule(3, 5_000);
+
+        assertThat(wheel.advance(200)).isEmpty();
+        assertThat(wheel.advance(300)).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(wheel.advance(400)).isEmpty();
+        assertThat(wheel.size()).isEqualTo(1);
+    }
+
+    @Test
+    void advance_keepsEntriesSeveralTurnsAway() {
+        // One turn is 8 ticks (800 ms); 2_050 shares a slot with ticks passed on the way
+        TimerWheel wheel = new TimerWheel(100, 8, 0);
+        wheel.schedule(1, 2_050);
+
+        assertThat(wheel.advance(1_000)).isEmpty();
+        assertThat(wheel.advance(2_000)).isEmpty();
+        assertThat(wheel.advance(2_100)).containsExactly(1L);
+    }
+
+    @Test
+    void advance_afterLongPause_visitsEverySlotOnce() {
+        TimerWheel wheel = new TimerWheel(100, 8, 0);
+        for (long id = 0; id < 20; id++) {
+            wheel.schedule(id, 100 + id * 100);
+        }
+
+        assertThat(wheel.advance(10_000)).hasSize(20);
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void scheduleAgain_replacesDeadline_andCancelRemoves() {
+        TimerWheel wheel = new TimerWheel(100, 8, 0);
+        wheel.schedule(1, 200);
+        wheel.schedule(1, 900);
+        wheel.schedule(2, 200);
+
+        assertThat(wheel.cancel(2)).isTrue();
+        assertThat(wheel.cancel(2)).isFalse();
+        assertThat(wheel.advance(500)).isEmpty();
+        assertThat(wheel.advance(900)).containsExactly(1L);
+    }
+
+    @Test
+    void pastDeadline_firesOnNextTick() {
+        TimerWheel wheel = new TimerWheel(100, 8, 1_000);
+        wheel.schedule(1, 10);
+
+        assertThat(wheel.advance(1_000)).isEmpty();
+        assertThat(wheel.advance(1_100)).containsExactly(1L);
+    }
+}
@@ -0,0 +1,134 @@
+package com.line.library.loan;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import com.line.library.hold.HoldService;
+
+/**
+ * The return statement is PostgreSQL SQL, so this runs against the
+ * docker-compose database (or SPRING_DATASOURCE_URL/USERNAME/PASSWORD)
+ * and is skipped when it is not reachable.
+ */
+class BulkReturnTest {
+
+    private static final String URL = env("SPRING_DATASOURCE_URL", "jdbc:postgresql://localhost:5432/library");
+    private static final String USER = env("SPRING_DATASOURCE_USERNAME", "library");
+    private static final String PASSWORD = env("SPRING_DATASOURCE_PASSWORD", "library");
+
+    private JdbcTemplate jdbc;
+    private HoldService holds;
+    private BulkReturn bulkReturn;
+    private long aliceId;
+    private long bobId;
+    private long libraryId;
+    private long bookId;
+
+    @BeforeEach
+    void seed() {
+        assumeTrue(databaseReachable(), "Postgres not reachable at " + URL);
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(URL, USER, PASSWORD);
+        jdbc = new JdbcTemplate(dataSource);
+        holds = mock(HoldService.class);
+        bulkReturn = new BulkReturn(new NamedParameterJdbcTemplate(dataSource), holds);
+        aliceId = newUser("bulk-alice@example.com");
+        bobId = newUser("bulk-bob@example.com");
+        libraryId = jdbc.queryForObject("insert into libraries (name) values ('Bulk') returning id", Long.class);
+        bookId = jdbc.queryForObject(
+                "insert into books (title, author, type) values ('Bulk', 'Return', 'BOOK') returning id", Long.class);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        if (jdbc == null) {
+            return;
+        }
+        jdbc.update("update book_copies set current_loan_id = null where book_id = ?", bookId);
+        jdbc.update("delete from outbox_events where aggregate_type = 'loan' and aggregate_id in (select id from loans where user_id in (?, ?))",
+                aliceId, bobId);
+        jdbc.update("delete from loans where user_id in (?, ?)", aliceId, bobId);
+        jdbc.update("delete from user_loan_counters where user_id in (?, ?)", aliceId, bobId);
+        jdbc.update("delete from book_copies where book_id = ?", bookId);
+        jdbc.update("delete from books where id = ?", bookId);
+        jdbc.update("delete from libraries where id = ?", libraryId);
+        jdbc.update("delete from users where id in (?, ?)", aliceId, bobId);
+    }
+
+    @Test
+    void closesEveryBorrowersLoans_andReportsEachCopy() {
+        long a1 = newCopy();
+        long a2 = newCopy();
+        long b1 = newCopy();
+        long shelved = newCopy();
+        long loanA1 = loan(aliceId, a1);
+        long loanA2 = loan(aliceId, a2);
+        long loanB1 = loan(bobId, b1);
+        jdbc.update("insert into user_loan_counters (user_id, active_books, active_publications) values (?, 2, 0), (?, 1, 0)",
+                aliceId, bobId);
+
+        List<ReturnOutcome> outcomes = bulkReturn.returnCopies(List.of(b1, a1, shelved, -1L, a2, a1));
+
+        assertThat(outcomes).containsExactly(
+                ReturnOutcome.returned(b1, loanB1),
+                ReturnOutcome.returned(a1, loanA1),
+                ReturnOutcome.failed(shelved, "Copy is not on loan"),
+                ReturnOutcome.failed(-1L, "Copy not found"),
+                ReturnOutcome.returned(a2, loanA2));
+        assertThat(jdbc.queryForObject("select count(*) from loans where user_id in (?, ?) and returned_at is null",
+                Long.class, aliceId, bobId)).isZero();
+        assertThat(jdbc.queryForObject("select count(*) from book_copies where book_id = ? and current_loan_id is not null",
+                Long.class, bookId)).isZero();
+        assertThat(jdbc.queryForList("select active_books from user_loan_counters where user_id in (?, ?)",
+                Long.class, aliceId, bobId)).containsExactly(0L, 0L);
+        assertThat(jdbc.queryForObject("select count(*) from outbox_events where event_type = 'LOAN_RETURNED' and aggregate_id in (?, ?, ?)",
+                Long.class, loanA1, loanA2, loanB1)).isEqualTo(3);
+        verify(holds).offerAll(Map.of(a1, bookId, a2, bookId, b1, bookId));
+    }
+
+    private long newUser(String email) {
+        return jdbc.queryForObject(
+                "insert into users (name, email, password_hash) values ('Bulk', ?, 'x') returning id", Long.class, email);
+    }
+
+    private long newCopy() {
+        return jdbc.queryForObject("insert into book_copies (book_id, library_id) values (?, ?) returning id",
+                Long.class, bookId, libraryId);
+    }
+
+    private long loan(long userId, long copyId) {
+        long loanId = jdbc.queryForObject(
+                "insert into loans (user_id, copy_id, loaned_at, due_at) values (?, ?, now(), now() + interval '30 days') returning id",
+                Long.class, userId, copyId);
+        jdbc.update("update book_copies set current_loan_id = ? where id = ?", loanId, copyId);
+        return loanId;
+    }
+
+    private static boolean databaseReachable() {
+        DriverManager.setLoginTimeout(2);
+        try (Connection ignored = DriverManager.getConnection(URL, USER, PASSWORD)) {
+            return true;
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+
+    private static String env(String name, String fallback) {
+        String value = System.getenv(name);
+        return value != null ? value : fallback;
+    }
+}
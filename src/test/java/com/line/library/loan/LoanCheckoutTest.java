@@ -0,0 +1,106 @@
+package com.line.library.loan;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import com.line.library.copy.BookCopy;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class LoanCheckoutTest {
+
+    private final LoanService loanService = mock(LoanService.class);
+    private final SingleStatementCheckout singleStatement = mock(SingleStatementCheckout.class);
+    private final LoanRepository loanRepository = mock(LoanRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void optimistic_retriesConflictsUntilClaimed() {
+        Loan loan = new Loan();
+        when(loanService.loanCopyIfUnchanged(1L, "a@example.com"))
+                .thenThrow(conflict(), conflict())
+                .thenReturn(loan);
+        LoanCheckout checkout = new LoanCheckout(loanService, singleStatement, loanRepository, meterRegistry, CheckoutMode.OPTIMISTIC, 5, 1, 2);
+
+        assertThat(checkout.loanCopy(1L, "a@example.com")).isSameAs(loan);
+
+        verify(loanService, times(3)).loanCopyIfUnchanged(1L, "a@example.com");
+        assertThat(meterRegistry.get("loans.checkout.conflicts").tag("mode", "optimistic").counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("loans.checkout.retries").tag("mode", "optimistic").counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("loans.checkout").tags("mode", "optimistic", "outcome", "loaned").timer().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void optimistic_givesUpAfterMaxAttempts() {
+        when(loanService.loanCopyIfUnchanged(1L, "a@example.com")).thenThrow(conflict());
+        LoanCheckout checkout = new LoanCheckout(loanService, singleStatement, loanRepository, meterRegistry, CheckoutMode.OPTIMISTIC, 3, 1, 2);
+
+        assertThatThrownBy(() -> checkout.loanCopy(1L, "a@example.com"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage(LoanCheckout.BUSY);
+
+        verify(loanService, times(3)).loanCopyIfUnchanged(1L, "a@example.com");
+        assertThat(meterRegistry.get("loans.checkout.retries").tag("mode", "optimistic").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void optimistic_doesNotRetryRefusals() {
+        when(loanService.loanCopyIfUnchanged(1L, "a@example.com"))
+                .thenThrow(new IllegalStateException("Copy is already loaned"));
+        LoanCheckout checkout = new LoanCheckout(loanService, singleStatement, loanRepository, meterRegistry, CheckoutMode.OPTIMISTIC, 5, 1, 2);
+
+        assertThatThrownBy(() -> checkout.loanCopy(1L, "a@example.com"))
+                .hasMessage("Copy is already loaned");
+        verify(loanService, times(1)).loanCopyIfUnchanged(1L, "a@example.com");
+    }
+
+    @Test
+    void pessimistic_countsLockConflict() {
+        when(loanService.loanCopy(1L, "a@example.com")).thenThrow(new CannotAcquireLockException("nowait"));
+        LoanCheckout checkout = new LoanCheckout(loanService, singleStatement, loanRepository, meterRegistry, CheckoutMode.PESSIMISTIC, 5, 1, 2);
+
+        assertThatThrownBy(() -> checkout.loanCopy(1L, "a@example.com"))
+                .hasMessage(LoanCheckout.BUSY);
+        assertThat(meterRegistry.get("loans.checkout.conflicts").tag("mode", "pessimistic").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("loans.checkout").tags("mode", "pessimistic", "outcome", "busy").timer().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void singleStatement_returnsReferenceToNewLoan() {
+        Loan loan = new Loan();
+        when(singleStatement.loanCopy(1L, "a@example.com")).thenReturn(7L);
+        when(loanRepository.getReferenceById(7L)).thenReturn(loan);
+        LoanCheckout checkout = new LoanCheckout(loanService, singleStatement, loanRepository, meterRegistry,
+                CheckoutMode.SINGLE_STATEMENT, 5, 1, 2);
+
+        assertThat(checkout.loanCopy(1L, "a@example.com")).isSameAs(loan);
+        assertThat(meterRegistry.get("loans.checkout").tags("mode", "single_statement", "outcome", "loaned").timer().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void singleStatement_mapsNowaitToBusy() {
+        when(singleStatement.loanCopy(1L, "a@example.com")).thenThrow(new CannotAcquireLockException("nowait"));
+        LoanCheckout checkout = new LoanCheckout(loanService, singleStatement, loanRepository, meterRegistry,
+                CheckoutMode.SINGLE_STATEMENT, 5, 1, 2);
+
+        assertThatThrownBy(() -> checkout.loanCopy(1L, "a@example.com"))
+                .hasMessage(LoanCheckout.BUSY);
+        assertThat(meterRegistry.get("loans.checkout.conflicts").tag("mode", "single_statement").counter().count())
+                .isEqualTo(1);
+    }
+
+    private static ObjectOptimisticLockingFailureException conflict() {
+        return new ObjectOptimisticLockingFailureException(BookCopy.class, 1L);
+    }
+}
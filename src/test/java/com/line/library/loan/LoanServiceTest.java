@@ -3,30 +3,44 @@ package com.line.library.loan;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.List;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.line.library.book.Book;
 import com.line.library.book.BookRepository;
 import com.line.library.book.BookType;
 import com.line.library.copy.BookCopy;
 import com.line.library.copy.BookCopyRepository;
+import com.line.library.hold.HoldExpiryWheel;
+import com.line.library.hold.HoldRepository;
+import com.line.library.hold.HoldService;
 import com.line.library.library.Library;
 import com.line.library.library.LibraryRepository;
+import com.line.library.outbox.Outbox;
 import com.line.library.user.User;
 import com.line.library.user.UserRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import static com.line.library.testutil.TestDataFactory.*;
 
 @DataJpaTest
-@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
 @TestPropertySource(properties = {
+        // Embedded H2 in PostgreSQL mode, which accepts the loan counters' INSERT ... ON CONFLICT DO NOTHING
+        "spring.datasource.url=jdbc:h2:mem:loanservice;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
         // Avoid executing Postgres-specific schema.sql in embedded tests
         "spring.sql.init.mode=never",
         // Have Hibernate create tables from entities
@@ -39,12 +53,23 @@ class LoanServiceTest {
     @Autowired UserRepository userRepository;
     @Autowired BookRepository bookRepository;
     @Autowired LibraryRepository libraryRepository;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired TestEntityManager entityManager;
+    @Autowired UserLoanCounterRepository counterRepository;
+    @Autowired TransactionTemplate transactionTemplate;
+    @Autowired HoldRepository holdRepository;
 
     private LoanService loanService;
+    private ActiveLoanCounters counters;
+    private HoldService holdService;
 
     @BeforeEach
     void setUp() {
-        loanService = new LoanService(loanRepository, copyRepository, userRepository);
+        counters = new ActiveLoanCounters(counterRepository, loanRepository);
+        Outbox outbox = new Outbox(jdbcTemplate, new ObjectMapper());
+        holdService = new HoldService(holdRepository, bookRepository, libraryRepository, userRepository, copyRepository,
+                new HoldExpiryWheel(1000, 60), outbox, Duration.ofDays(3));
+        loanService = new LoanService(loanRepository, copyRepository, userRepository, jdbcTemplate, counters, holdService, outbox);
     }
 
     @Test
@@ -147,5 +172,166 @@ class LoanServiceTest {
         assertThat(activePubs).isEqualTo(LoanService.MAX_ACTIVE_PUBLICATIONS);
     }
 
+    @Test
+    void loanAnyCopy_takesAFreeCopyAtTheLibrary() {
+        User user = persistUser(userRepository, "alice@example.com");
+        Library main = persistLibrary(libraryRepository, "Main");
+        Library branch = persistLibrary(libraryRepository, "Branch");
+        Book book = persistBook(bookRepository, BookType.BOOK);
+        BookCopy onLoan = persistCopy(copyRepository, book, main);
+        onLoan.setCurrentLoanId(persistActiveLoanDefaultWindow(loanRepository, user, onLoan).getId());
+        copyRepository.save(onLoan);
+        BookCopy free = persistCopy(copyRepository, book, main);
+        persistCopy(copyRepository, book, branch);
+
+        Loan loan = loanService.loanAnyCopy(book.getId(), main.getId(), user.getEmail());
+
+        assertThat(loan.getCopy().getId()).isEqualTo(free.getId());
+        assertThat(copyRepository.findById(free.getId()).orElseThrow().getCurrentLoanId()).isEqualTo(loan.getId());
+        assertThatThrownBy(() -> loanService.loanAnyCopy(book.getId(), main.getId(), user.getEmail()))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessage("No copy is available at this library");
+    }
+
+    @Test
+    void loanCopyIfUnchanged_claimsCopyAndBumpsVersion() {
+        User user = persistUser(userRepository, "alice@example.com");
+        Library lib = persistLibrary(libraryRepository, "Main");
+        BookCopy copy = persistCopy(copyRepository, persistBook(bookRepository, BookType.BOOK), lib);
+        long version = copy.getVersion();
+
+        Loan loan = loanService.loanCopyIfUnchanged(copy.getId(), user.getEmail());
+        entityManager.clear();
+
+        BookCopy claimed = copyRepository.findById(copy.getId()).orElseThrow();
+        assertThat(claimed.getCurrentLoanId()).isEqualTo(loan.getId());
+        assertThat(claimed.getVersion()).isEqualTo(version + 1);
+        // The counter row is created after the loan row is written and still counts it once
+        assertCounters(user, 1, 0);
+        assertThatThrownBy(() -> loanService.loanCopyIfUnchanged(copy.getId(), user.getEmail()))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessage("Copy is already loaned");
+    }
+
+    @Test
+    void claimIfUnchanged_missesAfterConcurrentWrite() {
+        Library lib = persistLibrary(libraryRepository, "Main");
+        BookCopy copy = persistCopy(copyRepository, persistBook(bookRepository, BookType.BOOK), lib);
+        long readVersion = copy.getVersion();
+        // Someone else wrote the copy after we read it
+        copy.setShelfLocation("B-2");
+        copyRepository.saveAndFlush(copy);
+
+        assertThat(copyRepository.claimIfUnchanged(copy.getId(), readVersion, 42L)).isZero();
+    }
+
+    @Test
+    void loanCopies_reportsEachCopy_andAppliesLimitAcrossBatch() {
+        User user = persistUser(userRepository, "alice@example.com");
+        Library lib = persistLibrary(libraryRepository, "Main");
+        Book book = persistBook(bookRepository, BookType.BOOK);
+        Book pub = persistBook(bookRepository, BookType.PUBLICATION);
+        for (int i = 0; i < LoanService.MAX_ACTIVE_BOOKS - 2; i++) {
+            persistActiveLoanDefaultWindow(loanRepository, user, persistCopy(copyRepository, book, lib));
+        }
+        BookCopy taken = persistCopy(copyRepository, book, lib);
+        persistActiveLoanDefaultWindow(loanRepository, user, taken);
+        // One book slot left: b2 takes it and b1 is refused
+        BookCopy b1 = persistCopy(copyRepository, book, lib);
+        BookCopy b2 = persistCopy(copyRepository, book, lib);
+        BookCopy p1 = persistCopy(copyRepository, pub, lib);
+
+        List<CheckoutOutcome> outcomes = loanService.loanCopies(
+                List.of(b2.getId(), taken.getId(), p1.getId(), b1.getId(), 999_999L), user.getEmail());
+
+        assertThat(outcomes).extracting(CheckoutOutcome::copyId)
+                .containsExactly(b2.getId(), taken.getId(), p1.getId(), b1.getId(), 999_999L);
+        assertThat(outcomes.get(0).isLoaned()).isTrue();
+        assertThat(outcomes.get(1).error()).isEqualTo("Copy is already loaned");
+        assertThat(outcomes.get(2).isLoaned()).isTrue();
+        assertThat(outcomes.get(3).error()).startsWith("Borrowing limit reached");
+        assertThat(outcomes.get(4).error()).isEqualTo("Copy not found");
+
+        BookCopy loaned = copyRepository.findById(b2.getId()).orElseThrow();
+        assertThat(loaned.getCurrentLoanId()).isEqualTo(outcomes.get(0).loanId());
+        assertThat(copyRepository.findById(b1.getId()).orElseThrow().getCurrentLoanId()).isNull();
+        assertThat(loanRepository.countByUserAndCopyBookTypeAndReturnedAtIsNull(user, BookType.BOOK))
+                .isEqualTo(LoanService.MAX_ACTIVE_BOOKS);
+        assertThat(loanRepository.countByUserAndCopyBookTypeAndReturnedAtIsNull(user, BookType.PUBLICATION))
+                .isEqualTo(1);
+    }
+
+    @Test
+    void counters_followLoansAndReturns() {
+        User user = persistUser(userRepository, "alice@example.com");
+        Library lib = persistLibrary(libraryRepository, "Main");
+        // Loaned before the user had a counter row: picked up when the row is created
+        persistActiveLoanDefaultWindow(loanRepository, user,
+                persistCopy(copyRepository, persistBook(bookRepository, BookType.BOOK), lib));
+        BookCopy book = persistCopy(copyRepository, persistBook(bookRepository, BookType.BOOK), lib);
+        BookCopy pub = persistCopy(copyRepository, persistBook(bookRepository, BookType.PUBLICATION), lib);
+
+        Loan loan = loanService.loanCopy(book.getId(), user.getEmail());
+        loanService.loanCopy(pub.getId(), user.getEmail());
+        assertCounters(user, 2, 1);
+
+        loanService.returnLoan(loan.getId(), user.getEmail());
+        assertCounters(user, 1, 1);
+    }
+
+    @Test
+    void returnWithoutCounterRow_createsRowFromLoans() {
+        User user = persistUser(userRepository, "alice@example.com");
+        Library lib = persistLibrary(libraryRepository, "Main");
+        Loan first = persistActiveLoanDefaultWindow(loanRepository, user,
+                persistCopy(copyRepository, persistBook(bookRepository, BookType.BOOK), lib));
+        persistActiveLoanDefaultWindow(loanRepository, user,
+                persistCopy(copyRepository, persistBook(bookRepository, BookType.PUBLICATION), lib));
+
+        loanService.returnLoan(first.getId(), user.getEmail());
+        assertCounters(user, 0, 1);
+    }
+
+    @Test
+    void loanAndReturn_appendOutboxEvents() {
+        User user = persistUser(userRepository, "alice@example.com");
+        Library lib = persistLibrary(libraryRepository, "Main");
+        BookCopy copy = persistCopy(copyRepository, persistBook(bookRepository, BookType.BOOK), lib);
+
+        Loan loan = loanService.loanCopy(copy.getId(), user.getEmail());
+        loanService.returnLoan(loan.getId(), user.getEmail());
+
+        assertThat(jdbcTemplate.queryForList(
+                "select event_type from outbox_events where aggregate_id = ? order by id", String.class, loan.getId()))
+                .containsExactly("LOAN_CREATED", "LOAN_RETURNED");
+    }
+
+    @Test
+    void reconciler_repairsDrift() {
+        User user = persistUser(userRepository, "alice@example.com");
+        Library lib = persistLibrary(libraryRepository, "Main");
+        loanService.loanCopy(persistCopy(copyRepository, persistBook(bookRepository, BookType.BOOK), lib).getId(),
+                user.getEmail());
+        // A loan written behind the service's back
+        persistActiveLoanDefaultWindow(loanRepository, user,
+                persistCopy(copyRepository, persistBook(bookRepository, BookType.PUBLICATION), lib));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ActiveLoanCountReconciler reconciler = new ActiveLoanCountReconciler(
+                counterRepository, loanRepository, userRepository, counters, transactionTemplate, meterRegistry);
+
+        assertThat(reconciler.reconcile()).isEqualTo(1);
+        assertCounters(user, 1, 1);
+        assertThat(reconciler.reconcile()).isZero();
+        assertThat(meterRegistry.get("loans.counters.drift").counter().count()).isEqualTo(1);
+    }
+
+    private void assertCounters(User user, long books, long publications) {
+        entityManager.flush();
+        entityManager.clear();
+        UserLoanCounter counter = counterRepository.findById(user.getId()).orElseThrow();
+        assertThat(counter.getActiveBooks()).isEqualTo(books);
+        assertThat(counter.getActivePublications()).isEqualTo(publications);
+    }
+
     // Helpers have been centralized in TestDataFactory
 }
@@ -0,0 +1,105 @@
+package com.line.library.loan;
+
+import static com.line.library.testutil.TestDataFactory.persistBook;
+import static com.line.library.testutil.TestDataFactory.persistCopy;
+import static com.line.library.testutil.TestDataFactory.persistLibrary;
+import static com.line.library.testutil.TestDataFactory.persistUser;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import com.line.library.book.Book;
+import com.line.library.book.BookRepository;
+import com.line.library.book.BookType;
+import com.line.library.copy.BookCopy;
+import com.line.library.copy.BookCopyRepository;
+import com.line.library.library.Library;
+import com.line.library.library.LibraryRepository;
+import com.line.library.user.User;
+import com.line.library.user.UserRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+
+// No test transaction: each repository call commits on its own, as in the running app
+@SpringBootTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        // Embedded H2 in PostgreSQL mode, which accepts the loan counters' INSERT ... ON CONFLICT DO NOTHING
+        "spring.datasource.url=jdbc:h2:mem:secondlevelcache;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+        // Avoid executing Postgres-specific schema.sql in embedded tests
+        "spring.sql.init.mode=never",
+        // Have Hibernate create tables from entities
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        // LISTEN/NOTIFY and the outbox horizon need PostgreSQL
+        "app.cache.notify.enabled=false",
+        "app.outbox.relay.enabled=false"
+})
+class SecondLevelCacheTest {
+
+    @Autowired LoanService loanService;
+    @Autowired BookRepository bookRepository;
+    @Autowired BookCopyRepository copyRepository;
+    @Autowired LibraryRepository libraryRepository;
+    @Autowired UserRepository userRepository;
+    @Autowired EntityManagerFactory entityManagerFactory;
+    @Autowired MeterRegistry meterRegistry;
+
+    private Statistics stats;
+
+    @BeforeEach
+    void setUp() {
+        stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+    }
+
+    @Test
+    void bookAndLibraryReads_areServedFromCache() {
+        Book book = persistBook(bookRepository, BookType.BOOK);
+        persistLibrary(libraryRepository, "Cached");
+
+        // IDENTITY inserts are not put into the cache, so the first read loads it
+        bookRepository.findById(book.getId()).orElseThrow();
+        bookRepository.findById(book.getId()).orElseThrow();
+        libraryRepository.findAll();
+        libraryRepository.findAll();
+
+        assertThat(stats.getDomainDataRegionStatistics(Book.class.getName()).getHitCount()).isEqualTo(1);
+        assertThat(stats.getQueryCacheHitCount()).isEqualTo(1);
+        assertThat(meterRegistry.find("hibernate.second.level.cache.requests").meters()).isNotEmpty();
+    }
+
+    @Test
+    void loanAndReturn_neverServeStaleAvailability() {
+        User user = persistUser(userRepository, "l2-cache@example.com");
+        Library lib = persistLibrary(libraryRepository, "Main");
+        Book book = persistBook(bookRepository, BookType.BOOK);
+        BookCopy copy = persistCopy(copyRepository, book, lib);
+        // Warm the caches the way the /books page does
+        assertThat(available(book)).isEqualTo(1);
+
+        Loan loan = loanService.loanCopy(copy.getId(), user.getEmail());
+
+        assertThat(copyRepository.findById(copy.getId()).orElseThrow().getCurrentLoanId()).isEqualTo(loan.getId());
+        assertThat(available(book)).isZero();
+
+        loanService.returnLoan(loan.getId(), user.getEmail());
+
+        assertThat(copyRepository.findById(copy.getId()).orElseThrow().getCurrentLoanId()).isNull();
+        assertThat(available(book)).isEqualTo(1);
+    }
+
+    private long available(Book book) {
+        List<BookCopyRepository.AvailableCount> counts = copyRepository.countAvailableByBookIds(List.of(book.getId()));
+        return counts.stream().mapToLong(BookCopyRepository.AvailableCount::getAvailable).sum();
+    }
+}
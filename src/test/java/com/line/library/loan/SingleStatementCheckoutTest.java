@@ -0,0 +1,116 @@
+package com.line.library.loan;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.NoSuchElementException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+/**
+ * The checkout CTE is PostgreSQL SQL, so this runs against the
+ * docker-compose database (or SPRING_DATASOURCE_URL/USERNAME/PASSWORD)
+ * and is skipped when it is not reachable.
+ */
+class SingleStatementCheckoutTest {
+
+    private static final String URL = env("SPRING_DATASOURCE_URL", "jdbc:postgresql://localhost:5432/library");
+    private static final String USER = env("SPRING_DATASOURCE_USERNAME", "library");
+    private static final String PASSWORD = env("SPRING_DATASOURCE_PASSWORD", "library");
+    private static final String EMAIL = "single-statement@example.com";
+
+    private JdbcTemplate jdbc;
+    private SingleStatementCheckout checkout;
+    private long userId;
+    private long libraryId;
+    private long bookId;
+
+    @BeforeEach
+    void seed() {
+        assumeTrue(databaseReachable(), "Postgres not reachable at " + URL);
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(URL, USER, PASSWORD);
+        jdbc = new JdbcTemplate(dataSource);
+        checkout = new SingleStatementCheckout(new NamedParameterJdbcTemplate(dataSource));
+        userId = jdbc.queryForObject(
+                "insert into users (name, email, password_hash) values ('Single', ?, 'x') returning id", Long.class, EMAIL);
+        libraryId = jdbc.queryForObject("insert into libraries (name) values ('Single') returning id", Long.class);
+        bookId = jdbc.queryForObject(
+                "insert into books (title, author, type) values ('Single', 'Statement', 'BOOK') returning id", Long.class);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        if (jdbc == null) {
+            return;
+        }
+        jdbc.update("update book_copies set current_loan_id = null where book_id = ?", bookId);
+        jdbc.update("delete from loans where user_id = ?", userId);
+        jdbc.update("delete from book_copies where book_id = ?", bookId);
+        jdbc.update("delete from books where id = ?", bookId);
+        jdbc.update("delete from libraries where id = ?", libraryId);
+        jdbc.update("delete from users where id = ?", userId);
+    }
+
+    @Test
+    void loansCopyAndTakesSlot_thenRefusesSecondCheckout() {
+        long copyId = newCopy();
+
+        long loanId = checkout.loanCopy(copyId, EMAIL);
+
+        assertThat(jdbc.queryForObject("select current_loan_id from book_copies where id = ?", Long.class, copyId))
+                .isEqualTo(loanId);
+        assertThat(jdbc.queryForObject("select active_books from user_loan_counters where user_id = ?", Long.class, userId))
+                .isEqualTo(1);
+        assertThatThrownBy(() -> checkout.loanCopy(copyId, EMAIL))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Copy is already loaned");
+    }
+
+    @Test
+    void refusesPastBookLimit() {
+        for (int i = 0; i < LoanService.MAX_ACTIVE_BOOKS; i++) {
+            checkout.loanCopy(newCopy(), EMAIL);
+        }
+        long copyId = newCopy();
+
+        assertThatThrownBy(() -> checkout.loanCopy(copyId, EMAIL))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Borrowing limit reached: max 5 books");
+        assertThat(jdbc.queryForObject("select count(*) from loans where user_id = ?", Long.class, userId))
+                .isEqualTo(LoanService.MAX_ACTIVE_BOOKS);
+    }
+
+    @Test
+    void unknownCopy_throwsNoSuchElement() {
+        assertThatThrownBy(() -> checkout.loanCopy(-1L, EMAIL))
+                .isInstanceOf(NoSuchElementException.class);
+    }
+
+    private long newCopy() {
+        return jdbc.queryForObject("insert into book_copies (book_id, library_id) values (?, ?) returning id",
+                Long.class, bookId, libraryId);
+    }
+
+    private static boolean databaseReachable() {
+        DriverManager.setLoginTimeout(2);
+        try (Connection ignored = DriverManager.getConnection(URL, USER, PASSWORD)) {
+            return true;
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+
+    private static String env(String name, String fallback) {
+        String value = System.getenv(name);
+        return value != null ? value : fallback;
+    }
+}
@@ -0,0 +1,143 @@
+package com.line.library.outbox;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+@TestPropertySource(properties = {
+        // Avoid executing Postgres-specific schema.sql in embedded tests
+        "spring.sql.init.mode=never",
+        // Have Hibernate create tables from entities
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+class OutboxRelayTest {
+
+    @Autowired OutboxEventRepository eventRepository;
+    @Autowired OutboxOffsetRepository offsetRepository;
+    @Autowired PlatformTransactionManager transactionManager;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    private Outbox outbox;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        outbox = new Outbox(jdbcTemplate, new ObjectMapper());
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void relay_deliversInIdOrder_acrossBatches_andSavesOffset() {
+        appendBooks(5);
+        RecordingSubscriber subscriber = new RecordingSubscriber(-1);
+        OutboxRelay relay = relay(subscriber, Long.MAX_VALUE);
+
+        assertThat(relay.relay(subscriber)).isEqualTo(5);
+        assertThat(subscriber.aggregateIds).containsExactly(1L, 2L, 3L, 4L, 5L);
+        assertThat(offsetRepository.findById("recorder").orElseThrow().getLastId())
+                .isEqualTo(eventRepository.findAll().stream().mapToLong(OutboxEvent::getId).max().getAsLong());
+
+        assertThat(relay.relay(subscriber)).isZero();
+        assertThat(meterRegistry.get("outbox.dispatched").counter().count()).isEqualTo(5);
+    }
+
+    @Test
+    void failedEvent_isDeliveredAgainOnTheNextPoll() {
+        appendBooks(3);
+        RecordingSubscriber subscriber = new RecordingSubscriber(2);
+        OutboxRelay relay = relay(subscriber, Long.MAX_VALUE);
+
+        relay.relay(subscriber);
+        assertThat(subscriber.aggregateIds).containsExactly(1L);
+
+        relay.relay(subscriber);
+        assertThat(subscriber.aggregateIds).containsExactly(1L, 2L, 3L);
+        assertThat(meterRegistry.get("outbox.failures").counter().count()).isEqualTo(1);
+    }
+
+    // Transaction 20 took the lower id but commits after transaction 10; the offset must not skip its event
+    @Test
+    void eventsAtOrAboveTheHorizon_wait_andAreNotSkippedOnceTheirTransactionEnds() {
+        appendWithTxId(1, 20);
+        appendWithTxId(2, 10);
+        RecordingSubscriber subscriber = new RecordingSubscriber(-1);
+
+        assertThat(relay(subscriber, 20).relay(subscriber)).isEqualTo(1);
+        assertThat(subscriber.aggregateIds).containsExactly(2L);
+
+        assertThat(relay(subscriber, 21).relay(subscriber)).isEqualTo(1);
+        assertThat(subscriber.aggregateIds).containsExactly(2L, 1L);
+        assertThat(offsetRepository.findById("recorder").orElseThrow().getLastTxId()).isEqualTo(20);
+    }
+
+    @Test
+    void prune_keepsEventsNotYetDelivered() {
+        appendBooks(3);
+        RecordingSubscriber subscriber = new RecordingSubscriber(3);
+        OutboxRelay relay = relay(subscriber, Long.MAX_VALUE);
+        relay.relay(subscriber);
+
+        relay.prune();
+
+        assertThat(eventRepository.findAll()).extracting(OutboxEvent::getAggregateId).containsExactly(3L);
+    }
+
+    private OutboxRelay relay(OutboxSubscriber subscriber, long horizon) {
+        return new OutboxRelay(List.of(subscriber), eventRepository, offsetRepository, transactionManager,
+                meterRegistry, () -> horizon, 2, 10, Duration.ZERO);
+    }
+
+    // The embedded database has no transaction ids to default to; set one as PostgreSQL would
+    private void appendWithTxId(long aggregateId, long txId) {
+        outbox.append(OutboxEventType.BOOK_CREATED, aggregateId, Map.of("title", "Book " + aggregateId));
+        jdbcTemplate.update("update outbox_events set tx_id = ? where aggregate_id = ?", txId, aggregateId);
+    }
+
+    private void appendBooks(int n) {
+        for (long id = 1; id <= n; id++) {
+            outbox.append(OutboxEventType.BOOK_CREATED, id, Map.of("title", "Book " + id));
+        }
+    }
+
+    // Records aggregate ids; fails the first time it sees failOn
+    private static class RecordingSubscriber implements OutboxSubscriber {
+        final List<Long> aggregateIds = new ArrayList<>();
+        private long failOn;
+
+        RecordingSubscriber(long failOn) {
+            this.failOn = failOn;
+        }
+
+        @Override
+        public String name() {
+            return "recorder";
+        }
+
+        @Override
+        public void handle(OutboxEvent event) {
+            if (event.getAggregateId() == failOn) {
+                failOn = -1;
+                throw new IllegalStateException("Subscriber down");
+            }
+            aggregateIds.add(event.getAggregateId());
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.line.library.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class BkTreeTest {
+
+    @Test
+    void closest_findsWordWithinDistance() {
+        BkTree tree = new BkTree();
+        for (String w : new String[] {"tolkien", "tolstoy", "herbert", "hobbit", "dune", "rings"}) {
+            tree.add(w);
+        }
+
+        assertThat(tree.closest("tolkein", 2)).isEqualTo("tolkien");
+        assertThat(tree.closest("herbrt", 1)).isEqualTo("herbert");
+        assertThat(tree.closest("xyzzy", 2)).isNull();
+        assertThat(tree.contains("dune")).isTrue();
+        assertThat(tree.contains("dunes")).isFalse();
+    }
+
+    @Test
+    void closest_prefersMoreFrequentWordOnTie() {
+        BkTree tree = new BkTree();
+        tree.add("cat");
+        tree.add("car");
+        tree.add("car");
+
+        assertThat(tree.closest("caz", 1)).isEqualTo("car");
+        assertThat(tree.size()).isEqualTo(2);
+    }
+
+    @Test
+    void distance_stopsPastLimit() {
+        assertThat(BkTree.distance("kitten", "sitting", 10)).isEqualTo(3);
+        assertThat(BkTree.distance("kitten", "sitting", 1)).isEqualTo(2);
+        assertThat(BkTree.distance("a", "abcdef", 2)).isEqualTo(3);
+    }
+}
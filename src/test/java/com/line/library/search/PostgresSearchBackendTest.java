@@ -0,0 +1,123 @@
+package com.line.library.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+
+import com.line.library.book.Book;
+import com.line.library.book.BookRepository;
+import com.line.library.book.BookType;
+import com.line.library.search.SearchResult.TotalKind;
+
+class PostgresSearchBackendTest {
+
+    private final BookRepository bookRepository = mock(BookRepository.class);
+    private final SearchCountEstimator estimator = mock(SearchCountEstimator.class);
+
+    @Test
+    void capped_reportsLowerBound_whenMoreRowsThanCap() {
+        when(bookRepository.searchFuzzyAnyWindow("lee", null, null, 11, 0L)).thenReturn(books(11));
+        when(bookRepository.countFuzzyAnyCapped("lee", null, null, 101L)).thenReturn(101L);
+        PostgresSearchBackend backend = new PostgresSearchBackend(bookRepository, estimator, CountStrategy.CAPPED, 100);
+
+        SearchResult result = backend.search(new SearchQuery("lee", null, null, RankingMode.TRIGRAM), PageRequest.of(0, 10));
+
+        assertThat(result.page().getContent()).hasSize(10);
+        assertThat(result.page().getTotalElements()).isEqualTo(100);
+        assertThat(result.totalKind()).isEqualTo(TotalKind.AT_LEAST);
+        assertThat(result.hasNext()).isTrue();
+    }
+
+    @Test
+    void capped_skipsCount_onLastPage() {
+        when(bookRepository.searchFuzzyAnyWindow("lee", null, null, 11, 20L)).thenReturn(books(4));
+        PostgresSearchBackend backend = new PostgresSearchBackend(bookRepository, estimator, CountStrategy.CAPPED, 100);
+
+        SearchResult result = backend.search(new SearchQuery("lee", null, null, RankingMode.TRIGRAM), PageRequest.of(2, 10));
+
+        assertThat(result.page().getTotalElements()).isEqualTo(24);
+        assertThat(result.totalKind()).isEqualTo(TotalKind.EXACT);
+        assertThat(result.hasNext()).isFalse();
+        verify(bookRepository, never()).countFuzzyAnyCapped(anyString(), any(), any(), anyLong());
+    }
+
+    @Test
+    void estimated_neverReportsLessThanRowsSeen() {
+        when(bookRepository.searchFuzzyAnyWindow("the", null, null, 11, 50L)).thenReturn(books(11));
+        when(estimator.estimate(new SearchQuery("the", null, null, RankingMode.TRIGRAM))).thenReturn(12L);
+        PostgresSearchBackend backend = new PostgresSearchBackend(bookRepository, estimator, CountStrategy.ESTIMATED, 100);
+
+        SearchResult result = backend.search(new SearchQuery("the", null, null, RankingMode.TRIGRAM), PageRequest.of(5, 10));
+
+        assertThat(result.page().getTotalElements()).isEqualTo(61);
+        assertThat(result.totalKind()).isEqualTo(TotalKind.ESTIMATE);
+    }
+
+    @Test
+    void cjkQuery_usesBigramPath_evenWithHybridRanking() {
+        when(bookRepository.searchCjkWindow("村上", null, null, 10, 0L)).thenReturn(books(2));
+        when(bookRepository.facetCjk("村上", null, null)).thenReturn(List.of(bucket(1980, "BOOK", 2)));
+        PostgresSearchBackend backend = new PostgresSearchBackend(bookRepository, estimator, CountStrategy.EXACT, 100);
+
+        SearchResult result = backend.search(new SearchQuery("村上", null, null, RankingMode.HYBRID), PageRequest.of(0, 10));
+
+        assertThat(result.page().getTotalElements()).isEqualTo(2);
+        verify(bookRepository, never()).searchHybridWindow(anyString(), any(), any(), anyInt(), anyLong());
+    }
+
+    @Test
+    void exact_takesTotalAndFacetsFromGroupedCount() {
+        when(bookRepository.searchFuzzyAnyWindow("lee", null, null, 10, 0L)).thenReturn(books(10));
+        when(bookRepository.facetFuzzyAny("lee", null, null)).thenReturn(List.of(
+                bucket(1990, "BOOK", 7), bucket(2000, "BOOK", 5), bucket(null, "PUBLICATION", 3)));
+        PostgresSearchBackend backend = new PostgresSearchBackend(bookRepository, estimator, CountStrategy.EXACT, 100);
+
+        SearchResult result = backend.search(new SearchQuery("lee", null, null, RankingMode.TRIGRAM), PageRequest.of(0, 10));
+
+        assertThat(result.page().getTotalElements()).isEqualTo(15);
+        assertThat(result.facets().decades()).containsEntry(1990, 7L).containsEntry(2000, 5L);
+        assertThat(result.facets().unknownYear()).isEqualTo(3);
+        assertThat(result.facets().types()).containsEntry(BookType.BOOK, 12L).containsEntry(BookType.PUBLICATION, 3L);
+    }
+
+    @Test
+    void hybrid_usesFullTextQueries() {
+        when(bookRepository.searchHybridWindow("tolkien hobbit", null, null, 11, 0L)).thenReturn(books(3));
+        PostgresSearchBackend backend = new PostgresSearchBackend(bookRepository, estimator, CountStrategy.CAPPED, 100);
+
+        SearchResult result = backend.search(new SearchQuery("tolkien hobbit", null, null, RankingMode.HYBRID), PageRequest.of(0, 10));
+
+        assertThat(result.page().getContent()).hasSize(3);
+        verify(bookRepository, never()).searchFuzzyAnyWindow(anyString(), any(), any(), anyInt(), anyLong());
+    }
+
+    private static BookRepository.FacetBucket bucket(Integer decade, String type, long books) {
+        return new BookRepository.FacetBucket() {
+            public Integer getDecade() { return decade; }
+            public String getType() { return type; }
+            public long getBooks() { return books; }
+        };
+    }
+
+    private static List<Book> books(int n) {
+        List<Book> out = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            Book b = new Book();
+            b.setId((long) i + 1);
+            out.add(b);
+        }
+        return out;
+    }
+}
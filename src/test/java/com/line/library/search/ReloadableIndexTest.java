@@ -0,0 +1,56 @@
+package com.line.library.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.Test;
+
+import com.line.library.book.Book;
+import com.line.library.book.BookRepository;
+
+class ReloadableIndexTest {
+
+    private final BookRepository bookRepository = mock(BookRepository.class);
+    private final ReloadableIndex<Map<Long, String>> index =
+            new ReloadableIndex<>(ConcurrentHashMap::new, (target, b) -> target.put(b.getId(), b.getTitle()));
+
+    // The loader read the row before the rename committed, and puts it after the rename was saved
+    @Test
+    void reload_keepsSaveMadeWhileLoading_overStaleLoadedRow() {
+        Book renamed = book(1L, "Renamed");
+        when(bookRepository.findByIdGreaterThanOrderByIdAsc(anyLong(), any())).thenAnswer(inv -> {
+            index.onBookSaved(renamed);
+            return List.of(book(1L, "Original"));
+        });
+        when(bookRepository.findAllById(any())).thenReturn(List.of(renamed));
+
+        Map<Long, String> fresh = index.reload(bookRepository, loaded -> { });
+
+        assertThat(index.current()).isSameAs(fresh).containsEntry(1L, "Renamed");
+    }
+
+    @Test
+    void onBookSaved_afterReload_goesToTheNewInstance() {
+        when(bookRepository.findByIdGreaterThanOrderByIdAsc(anyLong(), any())).thenReturn(List.of());
+        Map<Long, String> old = index.current();
+
+        index.reload(bookRepository, loaded -> { });
+        index.onBookSaved(book(2L, "Added"));
+
+        assertThat(index.current()).isNotSameAs(old).containsEntry(2L, "Added");
+    }
+
+    private static Book book(long id, String title) {
+        Book b = new Book();
+        b.setId(id);
+        b.setTitle(title);
+        return b;
+    }
+}
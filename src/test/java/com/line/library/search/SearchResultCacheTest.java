@@ -0,0 +1,55 @@
+package com.line.library.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import com.line.library.book.CatalogVersion;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class SearchResultCacheTest {
+
+    private final CatalogVersion catalogVersion = new CatalogVersion();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final SearchResultCache cache = new SearchResultCache(catalogVersion, registry, 100, Duration.ofHours(1));
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void normalizedQueriesShareAnEntry() {
+        cache.get(new SearchQuery("  García ", null, null, RankingMode.TRIGRAM), 0, 10, this::load);
+        cache.get(new SearchQuery("garcia", null, null, RankingMode.TRIGRAM), 0, 10, this::load);
+
+        assertThat(loads).hasValue(1);
+        assertThat(registry.get("cache.gets").tag("cache", "searchResults").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void differentYearOrPageIsADifferentEntry() {
+        cache.get(new SearchQuery("garcia", null, null, RankingMode.TRIGRAM), 0, 10, this::load);
+        cache.get(new SearchQuery("garcia", 1967, null, RankingMode.TRIGRAM), 0, 10, this::load);
+        cache.get(new SearchQuery("garcia", null, null, RankingMode.TRIGRAM), 1, 10, this::load);
+
+        assertThat(loads).hasValue(3);
+    }
+
+    @Test
+    void catalogWriteInvalidatesEntries() {
+        cache.get(new SearchQuery("garcia", null, null, RankingMode.TRIGRAM), 0, 10, this::load);
+        catalogVersion.bump();
+        cache.get(new SearchQuery("garcia", null, null, RankingMode.TRIGRAM), 0, 10, this::load);
+
+        assertThat(loads).hasValue(2);
+    }
+
+    private SearchResult load() {
+        loads.incrementAndGet();
+        return SearchResult.exact(Page.empty(PageRequest.of(0, 10)));
+    }
+}
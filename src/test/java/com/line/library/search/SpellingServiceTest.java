@@ -0,0 +1,38 @@
+package com.line.library.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import org.junit.jupiter.api.Test;
+
+import com.line.library.book.Book;
+import com.line.library.book.BookRepository;
+
+class SpellingServiceTest {
+
+    private final SpellingService spelling = new SpellingService(mock(BookRepository.class));
+
+    @Test
+    void suggest_keepsPunctuationAroundCorrectedWords() {
+        spelling.onBookSaved(book("C++ Programming Language", "Stroustrup"));
+        spelling.onBookSaved(book("Learning Python", "O'Reilly"));
+
+        assertThat(spelling.suggest("C++ Programing")).isEqualTo("C++ programming");
+        assertThat(spelling.suggest("Learnig Python, O'Reilly")).isEqualTo("learning Python, O'Reilly");
+        assertThat(spelling.suggest("O'Reily")).isEqualTo("O'reilly");
+    }
+
+    @Test
+    void suggest_returnsNull_whenEveryWordIsKnown() {
+        spelling.onBookSaved(book("Dune", "Frank Herbert"));
+
+        assertThat(spelling.suggest("Dune: Herbert")).isNull();
+    }
+
+    private static Book book(String title, String author) {
+        Book b = new Book();
+        b.setTitle(title);
+        b.setAuthor(author);
+        return b;
+    }
+}
@@ -0,0 +1,55 @@
+package com.line.library.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class SuggestIndexTest {
+
+    @Test
+    void suggest_matchesTitleWordsAndAuthors_fromOneCharacter() {
+        SuggestIndex index = new SuggestIndex(10);
+        index.put(1L, "Harry Potter", "J. K. Rowling");
+        index.put(2L, "Hamlet", "William Shakespeare");
+
+        assertThat(texts(index.suggest("h"))).containsExactlyInAnyOrder("Harry Potter", "Hamlet");
+        assertThat(texts(index.suggest("pot"))).containsExactly("Harry Potter");
+        assertThat(texts(index.suggest("Wil"))).containsExactly("William Shakespeare");
+    }
+
+    @Test
+    void suggest_ranksByPopularity_andDeduplicatesAuthors() {
+        SuggestIndex index = new SuggestIndex(2);
+        index.put(1L, "Emma", "Jane Austen");
+        index.put(2L, "Persuasion", "Jane Austen");
+        index.put(3L, "Pride and Prejudice", "Jane Austen");
+        index.setPopularity(Map.of(2L, 5L, 3L, 9L));
+
+        assertThat(texts(index.suggest("p"))).containsExactly("Pride and Prejudice", "Persuasion");
+        assertThat(index.suggest("jane")).hasSize(1);
+    }
+
+    @Test
+    void put_replacesKeysOfEditedBook_evenWhenMemoized() {
+        SuggestIndex index = new SuggestIndex(10);
+        for (long id = 1; id <= 600; id++) {
+            index.put(id, "Title " + id, "Author");
+        }
+        assertThat(texts(index.suggest("t"))).hasSize(10);
+
+        index.setPopularity(Map.of(1L, 1L));
+        assertThat(texts(index.suggest("t"))).first().isEqualTo("Title 1");
+
+        index.put(1L, "Tzebra", "Author");
+
+        assertThat(texts(index.suggest("t"))).first().isEqualTo("Tzebra");
+        assertThat(texts(index.suggest("title 1"))).doesNotContain("Title 1");
+    }
+
+    private static List<String> texts(List<Suggestion> suggestions) {
+        return suggestions.stream().map(Suggestion::text).toList();
+    }
+}
@@ -0,0 +1,79 @@
+package com.line.library.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+import org.junit.jupiter.api.Test;
+
+import com.line.library.book.BookType;
+
+class TrigramIndexTest {
+
+    @Test
+    void similarity_matchesPgTrgm() {
+        // select similarity('word', 'two words') = 0.36363637
+        float s = TrigramIndex.similarity(
+                TrigramIndex.similarityGrams("word"),
+                TrigramIndex.similarityGrams("two words"));
+        assertThat(s).isEqualTo(4f / 11f);
+    }
+
+    @Test
+    void search_requiresSubstringMatch_andRanksBySimilarityThenId() {
+        TrigramIndex index = new TrigramIndex();
+        index.put(3L, 2001, BookType.BOOK, SearchText.of("Harry Potter and the Goblet of Fire", "J. K. Rowling"));
+        index.put(1L, 1997, BookType.BOOK, SearchText.of("Harry Potter", "J. K. Rowling"));
+        index.put(2L, 1999, BookType.BOOK, SearchText.of("Harry Potter", "J. K. Rowling"));
+        index.put(4L, 1990, BookType.BOOK, SearchText.of("Harry's Potter", "Someone"));
+
+        assertThat(index.search("harry potter", null).ids()).containsExactly(1L, 2L, 3L);
+        assertThat(index.search("harry potter", 2001).ids()).containsExactly(3L);
+    }
+
+    @Test
+    void search_countsFacetsOverAllMatches() {
+        TrigramIndex index = new TrigramIndex();
+        index.put(1L, 1997, BookType.BOOK, SearchText.of("Harry Potter", "Rowling"));
+        index.put(2L, 1999, BookType.BOOK, SearchText.of("Harry Potter 2", "Rowling"));
+        index.put(3L, 2001, BookType.PUBLICATION, SearchText.of("Harry Potter Weekly", "Press"));
+        index.put(4L, null, BookType.PUBLICATION, SearchText.of("Harry Potter Fan Zine", "Fans"));
+        index.put(5L, 2001, BookType.BOOK, SearchText.of("Dune", "Herbert"));
+
+        Facets facets = index.search("harry potter", null).facets();
+
+        assertThat(facets.decades()).containsExactly(entry(1990, 2L), entry(2000, 1L));
+        assertThat(facets.unknownYear()).isEqualTo(1L);
+        assertThat(facets.types()).containsEntry(BookType.BOOK, 2L).containsEntry(BookType.PUBLICATION, 2L);
+    }
+
+    @Test
+    void search_cjk_matchesTwoCharacterQueries_andRanksShorterTextsFirst() {
+        TrigramIndex index = new TrigramIndex();
+        index.put(1L, 1987, BookType.BOOK, SearchText.of("挪威的森林", "村上春樹"));
+        index.put(2L, 1985, BookType.BOOK, SearchText.of("世界末日與冷酷異境", "村上春樹"));
+        index.put(3L, 2000, BookType.BOOK, SearchText.of("海邊的卡夫卡", "村上春樹"));
+        index.put(4L, 1999, BookType.BOOK, SearchText.of("村上的上春", "佚名"));
+
+        assertThat(index.search("村上", null).ids()).containsExactly(4L, 1L, 3L, 2L);
+        assertThat(index.search("森林", null).ids()).containsExactly(1L);
+        // Both bigrams present in book 4, but not adjacent
+        assertThat(index.search("村上春", null).ids()).containsExactly(1L, 3L, 2L);
+    }
+
+    @Test
+    void put_replacesPreviousPostings() {
+        TrigramIndex index = new TrigramIndex();
+        index.put(1L, null, BookType.BOOK, SearchText.of("Old Title", "Author"));
+        index.put(1L, null, BookType.BOOK, SearchText.of("New Title", "Author"));
+
+        assertThat(index.search("old title", null).ids()).isEmpty();
+        assertThat(index.search("new title", null).ids()).containsExactly(1L);
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    void normalize_lowercasesAndStripsAccents() {
+        assertThat(SearchText.normalize("Gabriel García Márquez")).isEqualTo("gabriel garcia marquez");
+        assertThat(SearchText.normalize("三體")).isEqualTo("三體");
+    }
+}
@@ -0,0 +1,140 @@
+package com.line.library.sync;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.function.Predicate;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import com.line.library.LibraryApplication;
+import com.line.library.book.Book;
+import com.line.library.book.BookPageCache;
+import com.line.library.book.BookRepository;
+import com.line.library.book.BookSummary;
+import com.line.library.book.BookType;
+import com.line.library.search.SpellingService;
+import com.line.library.search.SuggestService;
+import com.line.library.search.Suggestion;
+
+/**
+ * Two application contexts on one Postgres database, standing in for two
+ * nodes behind the load balancer. Needs the docker-compose database
+ * (or SPRING_DATASOURCE_URL/USERNAME/PASSWORD); skipped when it is not reachable.
+ */
+class CatalogSyncTest {
+
+    private static final String URL = env("SPRING_DATASOURCE_URL", "jdbc:postgresql://localhost:5432/library");
+    private static final String USER = env("SPRING_DATASOURCE_USERNAME", "library");
+    private static final String PASSWORD = env("SPRING_DATASOURCE_PASSWORD", "library");
+
+    private ConfigurableApplicationContext nodeA;
+    private ConfigurableApplicationContext nodeB;
+    private Book book;
+
+    @BeforeEach
+    void startNodes() {
+        assumeTrue(databaseReachable(), "Postgres not reachable at " + URL);
+        nodeA = start();
+        nodeB = start();
+    }
+
+    @AfterEach
+    void stopNodes() {
+        if (book != null) {
+            nodeA.getBean(BookRepository.class).deleteById(book.getId());
+        }
+        if (nodeB != null) {
+            nodeB.close();
+        }
+        if (nodeA != null) {
+            nodeA.close();
+        }
+    }
+
+    @Test
+    void writesOnOneNode_evictCachedPagesOnTheOther() throws Exception {
+        BookRepository repoA = nodeA.getBean(BookRepository.class);
+        CatalogSync syncA = nodeA.getBean(CatalogSync.class);
+
+        book = new Book();
+        book.setTitle("Sync Original");
+        book.setAuthor("Node A");
+        book.setType(BookType.BOOK);
+        book = repoA.save(book);
+        syncA.bookCreated(book);
+        awaitFirstPageOfB(titles -> titles.contains("Sync Original"));
+
+        book.setTitle("Sync Renamed");
+        book = repoA.save(book);
+        syncA.bookUpdated(book);
+        awaitFirstPageOfB(titles -> titles.contains("Sync Renamed"));
+    }
+
+    @Test
+    void missedNotifications_rebuildInMemoryIndexesOnTheOtherNode() {
+        // Saved without a notification, as if B's listener had been disconnected at the time
+        book = new Book();
+        book.setTitle("Quixotical Lighthouses");
+        book.setAuthor("Node A");
+        book.setType(BookType.BOOK);
+        book = nodeA.getBean(BookRepository.class).save(book);
+
+        nodeB.getBean(CatalogChangeHandler.class).onChangesMissed();
+
+        assertThat(nodeB.getBean(SuggestService.class).suggest("quixotical").stream().map(Suggestion::text))
+                .contains("Quixotical Lighthouses");
+        assertThat(nodeB.getBean(SpellingService.class).suggest("quixoticl")).isEqualTo("quixotical");
+    }
+
+    // Reads go through B's page cache, so the rename only shows once B has evicted the page it cached above
+    private void awaitFirstPageOfB(Predicate<List<String>> condition) throws InterruptedException {
+        BookPageCache cacheB = nodeB.getBean(BookPageCache.class);
+        BookRepository repoB = nodeB.getBean(BookRepository.class);
+        List<String> titles = List.of();
+        for (int i = 0; i < 50; i++) {
+            titles = cacheB.get(0, 10, () -> repoB.findAll(PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "id"))))
+                    .getContent().stream().map(BookSummary::title).toList();
+            if (condition.test(titles)) {
+                return;
+            }
+            Thread.sleep(100);
+        }
+        assertThat(condition.test(titles)).as("node B first page %s", titles).isTrue();
+    }
+
+    private static ConfigurableApplicationContext start() {
+        return new SpringApplicationBuilder(LibraryApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.datasource.url=" + URL,
+                        "spring.datasource.username=" + USER,
+                        "spring.datasource.password=" + PASSWORD,
+                        "spring.sql.init.mode=never")
+                .run();
+    }
+
+    private static boolean databaseReachable() {
+        DriverManager.setLoginTimeout(2);
+        try (Connection ignored = DriverManager.getConnection(URL, USER, PASSWORD)) {
+            return true;
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+
+    private static String env(String name, String fallback) {
+        String value = System.getenv(name);
+        return value != null ? value : fallback;
+    }
+}
@@ -0,0 +1,144 @@
+package com.line.library.warmup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.DefaultApplicationArguments;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.line.library.search.RankingMode;
+import com.line.library.search.SearchBackend;
+import com.line.library.search.SearchQuery;
+import com.line.library.search.SearchResult;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+@SpringBootTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+@TestPropertySource(properties = {
+        // Avoid executing Postgres-specific schema.sql in embedded tests
+        "spring.sql.init.mode=never",
+        // Have Hibernate create tables from entities
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        // LISTEN/NOTIFY and the outbox horizon need PostgreSQL
+        "app.cache.notify.enabled=false",
+        "app.outbox.relay.enabled=false",
+        "app.warmup.search-queries=2"
+})
+class CacheWarmerTest {
+
+    @Autowired HotQueryRecorder recorder;
+    @Autowired HotQueryRepository repository;
+    @Autowired CacheWarmer warmer;
+    @Autowired MeterRegistry meterRegistry;
+    @Autowired PlatformTransactionManager transactionManager;
+    @MockitoBean SearchBackend searchBackend;
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+        clearInvocations(searchBackend);
+        when(searchBackend.search(any(), any()))
+                .thenReturn(SearchResult.exact(Page.empty(), null));
+    }
+
+    @Test
+    void flush_mergesCountsAcrossFlushes() {
+        recorder.record(new SearchQuery("Tolkien", null, null, RankingMode.TRIGRAM));
+        recorder.record(new SearchQuery("tolkien ", null, null, RankingMode.TRIGRAM));
+        recorder.flush();
+        recorder.record(new SearchQuery("Tolkien", null, null, RankingMode.TRIGRAM));
+        recorder.record(new SearchQuery("Tolkien", 1954, null, RankingMode.TRIGRAM));
+        // Filtered by availability: never served from the result cache, so not worth replaying
+        recorder.record(new SearchQuery("Tolkien", null, 1L, RankingMode.TRIGRAM));
+        recorder.flush();
+
+        List<HotQuery> rows = repository.findAll();
+        assertThat(rows).hasSize(2);
+        assertThat(recorder.top(1)).containsExactly(new SearchQuery("tolkien", null, null, RankingMode.TRIGRAM));
+    }
+
+    @Test
+    void flush_rolledBack_keepsCountsForNextFlush() {
+        recorder.record(new SearchQuery("dune", null, null, RankingMode.TRIGRAM));
+        recorder.record(new SearchQuery("dune", null, null, RankingMode.TRIGRAM));
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            recorder.flush();
+            status.setRollbackOnly();
+        });
+        assertThat(repository.findAll()).isEmpty();
+
+        recorder.flush();
+
+        assertThat(repository.findAll()).singleElement()
+                .satisfies(h -> assertThat(h.getHits()).isEqualTo(2));
+    }
+
+    // @PreDestroy calls it on the bean itself, outside the transactional proxy and any test transaction
+    @Test
+    void flushOnShutdown_storesPendingCounts() {
+        recorder.record(new SearchQuery("dune", null, null, RankingMode.TRIGRAM));
+        recorder.record(new SearchQuery("hyperion", 1989, null, RankingMode.TRIGRAM));
+
+        recorder.flushOnShutdown();
+
+        assertThat(repository.findAll()).extracting(HotQuery::getQuery, HotQuery::getHits)
+                .containsExactlyInAnyOrder(tuple("dune", 1L), tuple("hyperion", 1L));
+    }
+
+    @Test
+    void flush_decaysStoredCounts() {
+        for (int i = 0; i < 200; i++) {
+            recorder.record(new SearchQuery("dune", null, null, RankingMode.TRIGRAM));
+        }
+        recorder.flush();
+        recorder.record(new SearchQuery("hyperion", null, null, RankingMode.TRIGRAM));
+        recorder.flush();
+
+        assertThat(repository.findAll()).extracting(HotQuery::getQuery, HotQuery::getHits)
+                .containsExactlyInAnyOrder(tuple("dune", 198L),
+                        tuple("hyperion", 1L));
+    }
+
+    @Test
+    void run_replaysMostFrequentSearches() {
+        for (int i = 0; i < 3; i++) {
+            recorder.record(new SearchQuery("dune", null, null, RankingMode.TRIGRAM));
+        }
+        for (int i = 0; i < 2; i++) {
+            recorder.record(new SearchQuery("foundation", null, null, RankingMode.HYBRID));
+        }
+        recorder.record(new SearchQuery("hyperion", null, null, RankingMode.TRIGRAM));
+        recorder.flush();
+
+        warmer.run(new DefaultApplicationArguments());
+
+        verify(searchBackend, times(1))
+                .search(eq(new SearchQuery("dune", null, null, RankingMode.TRIGRAM)), any(Pageable.class));
+        verify(searchBackend, times(1))
+                .search(eq(new SearchQuery("foundation", null, null, RankingMode.HYBRID)), any(Pageable.class));
+        verify(searchBackend, times(0))
+                .search(eq(new SearchQuery("hyperion", null, null, RankingMode.TRIGRAM)), any(Pageable.class));
+        assertThat(meterRegistry.find("warmup.duration").tag("phase", "search").timer()).isNotNull();
+        assertThat(meterRegistry.find("warmup.tasks").tags("phase", "browse", "outcome", "done").counter().count())
+                .isPositive();
+    }
+}
@@ -0,0 +1,92 @@
+package com.line.library.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.thymeleaf.context.IContext;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import com.line.library.book.BookSummary;
+import com.line.library.book.BookType;
+import com.line.library.library.Library;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class BookRowRendererTest {
+
+    private SpringTemplateEngine engine;
+    private SimpleMeterRegistry meterRegistry;
+    private BookRowRenderer renderer;
+    private List<Library> libraries;
+
+    @BeforeEach
+    void setUp() {
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        engine = spy(new SpringTemplateEngine());
+        engine.setTemplateResolver(resolver);
+        meterRegistry = new SimpleMeterRegistry();
+        renderer = new BookRowRenderer(engine, meterRegistry, 100);
+        libraries = List.of(library(1L), library(2L));
+    }
+
+    @Test
+    void render_escapesFieldsAndLinksWithContextPath() {
+        BookSummary book = new BookSummary(7L, "Tom & <Jerry>", "Hanna", 1940, BookType.BOOK);
+
+        String html = renderer.render(List.of(row(book, 3L, 0L)), libraries, "/app").get(0);
+
+        assertThat(html).contains("href=\"/app/books/7\"")
+                .contains("Tom &amp; &lt;Jerry&gt;")
+                .contains("<td>3</td>")
+                .contains("<td>0</td>");
+    }
+
+    @Test
+    void render_onlyRerendersChangedRows() {
+        BookSummary a = new BookSummary(1L, "A", "X", 2000, BookType.BOOK);
+        BookSummary b = new BookSummary(2L, "B", "Y", 2001, BookType.BOOK);
+        renderer.render(List.of(row(a, 1L, 1L), row(b, 1L, 1L)), libraries, "");
+        clearInvocations(engine);
+
+        // Unchanged page: served from the cache
+        renderer.render(List.of(row(a, 1L, 1L), row(b, 1L, 1L)), libraries, "");
+        verify(engine, times(0)).process(eq("fragments/book_row"), anySet(), any(IContext.class));
+
+        // A loan on b and an edit of a: two new rows
+        BookSummary edited = new BookSummary(1L, "A (2nd ed.)", "X", 2000, BookType.BOOK);
+        List<String> html = renderer.render(List.of(row(edited, 1L, 1L), row(b, 0L, 1L)), libraries, "");
+        verify(engine, times(2)).process(eq("fragments/book_row"), anySet(), any(IContext.class));
+        assertThat(html.get(0)).contains("A (2nd ed.)");
+        assertThat(html.get(1)).contains("<td>0</td>");
+        assertThat(meterRegistry.get("books.rows.render").timer().count()).isEqualTo(3);
+    }
+
+    private BooksController.BookAvailabilityRow row(BookSummary book, long atFirst, long atSecond) {
+        Map<Long, Long> available = new LinkedHashMap<>();
+        available.put(1L, atFirst);
+        available.put(2L, atSecond);
+        return new BooksController.BookAvailabilityRow(book, available);
+    }
+
+    private static Library library(long id) {
+        Library lib = new Library();
+        lib.setId(id);
+        lib.setName("Library " + id);
+        return lib;
+    }
+}
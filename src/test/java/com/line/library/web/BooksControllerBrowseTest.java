@@ -0,0 +1,201 @@
+package com.line.library.web;
+
+import static com.line.library.testutil.TestDataFactory.persistCopy;
+import static com.line.library.testutil.TestDataFactory.persistLibrary;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.line.library.book.Book;
+import com.line.library.book.BookRepository;
+import com.line.library.book.BookType;
+import com.line.library.copy.BookCopy;
+import com.line.library.copy.BookCopyRepository;
+import com.line.library.library.Library;
+import com.line.library.library.LibraryRepository;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+@TestPropertySource(properties = {
+        // Avoid executing Postgres-specific schema.sql in embedded tests
+        "spring.sql.init.mode=never",
+        // Have Hibernate create tables from entities
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        // LISTEN/NOTIFY and the outbox horizon need PostgreSQL
+        "app.cache.notify.enabled=false",
+        "app.outbox.relay.enabled=false"
+})
+class BooksControllerBrowseTest {
+
+    @Autowired MockMvc mockMvc;
+    @Autowired BookRepository bookRepository;
+    @Autowired BookCopyRepository copyRepository;
+    @Autowired LibraryRepository libraryRepository;
+
+    private final List<Long> idsNewestFirst = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        copyRepository.deleteAll();
+        bookRepository.deleteAll();
+        libraryRepository.deleteAll();
+        idsNewestFirst.clear();
+        for (int i = 0; i < 25; i++) {
+            Book b = new Book();
+            b.setTitle("Title " + i);
+            b.setAuthor("Author " + i);
+            b.setType(BookType.BOOK);
+            idsNewestFirst.add(0, bookRepository.save(b).getId());
+        }
+    }
+
+    @Test
+    void browse_afterCursor_seeksPastId() throws Exception {
+        MvcResult result = mockMvc.perform(get("/books").param("after", idsNewestFirst.get(9).toString())
+                        .with(user("mem").roles("MEMBER")))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("cursorMode", true))
+                .andExpect(model().attribute("nextAfter", idsNewestFirst.get(19)))
+                .andExpect(model().attribute("prevBefore", idsNewestFirst.get(10)))
+                .andReturn();
+
+        assertThat(result.getResponse().getContentAsString()).contains(">Title ");
+        assertThat(rowIds(result)).isEqualTo(idsNewestFirst.subList(10, 20));
+    }
+
+    @Test
+    void browse_firstPageReachedByCursor_hasNoPrevCursor() throws Exception {
+        MvcResult result = mockMvc.perform(get("/books").param("after", Long.toString(idsNewestFirst.get(0) + 1))
+                        .with(user("mem").roles("MEMBER")))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("nextAfter", idsNewestFirst.get(9)))
+                .andExpect(model().attributeDoesNotExist("prevBefore"))
+                .andReturn();
+
+        assertThat(rowIds(result)).isEqualTo(idsNewestFirst.subList(0, 10));
+    }
+
+    @Test
+    void browse_lastPage_hasNoNextCursor() throws Exception {
+        MvcResult result = mockMvc.perform(get("/books").param("after", idsNewestFirst.get(19).toString())
+                        .with(user("mem").roles("MEMBER")))
+                .andExpect(status().isOk())
+                .andExpect(model().attributeDoesNotExist("nextAfter"))
+                .andReturn();
+
+        assertThat(rowIds(result)).isEqualTo(idsNewestFirst.subList(20, 25));
+    }
+
+    @Test
+    void browse_beforeCursor_returnsPreviousPageNewestFirst() throws Exception {
+        MvcResult result = mockMvc.perform(get("/books").param("before", idsNewestFirst.get(20).toString())
+                        .with(user("mem").roles("MEMBER")))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("prevBefore", idsNewestFirst.get(10)))
+                .andExpect(model().attribute("nextAfter", idsNewestFirst.get(19)))
+                .andReturn();
+
+        assertThat(rowIds(result)).isEqualTo(idsNewestFirst.subList(10, 20));
+    }
+
+    @Test
+    void browse_availableAt_onlyListsBooksWithFreeCopyThere() throws Exception {
+        Library main = persistLibrary(libraryRepository, "Main");
+        Library branch = persistLibrary(libraryRepository, "Branch");
+        Book freeAtMain = bookRepository.findById(idsNewestFirst.get(3)).orElseThrow();
+        Book loanedAtMain = bookRepository.findById(idsNewestFirst.get(5)).orElseThrow();
+        Book freeAtBranch = bookRepository.findById(idsNewestFirst.get(7)).orElseThrow();
+        persistCopy(copyRepository, freeAtMain, main);
+        BookCopy loaned = persistCopy(copyRepository, loanedAtMain, main);
+        loaned.setCurrentLoanId(99L);
+        copyRepository.save(loaned);
+        persistCopy(copyRepository, freeAtBranch, branch);
+
+        MvcResult result = mockMvc.perform(get("/books").param("availableAt", main.getId().toString())
+                        .with(user("mem").roles("MEMBER")))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("totalItems", 1L))
+                .andReturn();
+        assertThat(rowIds(result)).containsExactly(freeAtMain.getId());
+
+        MvcResult cursor = mockMvc.perform(get("/books").param("availableAt", main.getId().toString())
+                        .param("after", idsNewestFirst.get(0).toString())
+                        .with(user("mem").roles("MEMBER")))
+                .andExpect(status().isOk())
+                .andExpect(model().attributeDoesNotExist("prevBefore"))
+                .andReturn();
+        assertThat(rowIds(cursor)).containsExactly(freeAtMain.getId());
+    }
+
+    @Test
+    void browse_unchangedCatalog_answersIfNoneMatchWith304() throws Exception {
+        // The tag covers the session (its CSRF token is on the page), so keep one like a browser would
+        MockHttpSession session = new MockHttpSession();
+        MvcResult first = mockMvc.perform(get("/books").session(session).with(user("mem").roles("MEMBER")))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "private, no-cache"))
+                .andReturn();
+        String etag = first.getResponse().getHeader("ETag");
+        assertThat(etag).startsWith("\"");
+
+        mockMvc.perform(get("/books").session(session).header("If-None-Match", etag)
+                        .with(user("mem").roles("MEMBER")))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        // Pages carry the viewer's name and links, so another user never matches
+        mockMvc.perform(get("/books").session(session).header("If-None-Match", etag)
+                        .with(user("other").roles("MEMBER")))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void viewBook_newCopy_changesETag() throws Exception {
+        Library main = persistLibrary(libraryRepository, "Main");
+        String path = "/books/" + idsNewestFirst.get(0);
+        MockHttpSession session = new MockHttpSession();
+        String etag = mockMvc.perform(get(path).session(session).with(user("lib").roles("LIBRARIAN")))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        mockMvc.perform(get(path).session(session).header("If-None-Match", etag).with(user("lib").roles("LIBRARIAN")))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(post(path + "/copies").contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                        .param("libraryId", main.getId().toString())
+                        .with(user("lib").roles("LIBRARIAN")).with(csrf()))
+                .andExpect(status().is3xxRedirection());
+
+        mockMvc.perform(get(path).session(session).header("If-None-Match", etag).with(user("lib").roles("LIBRARIAN")))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", not(etag)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Long> rowIds(MvcResult result) {
+        List<BooksController.BookAvailabilityRow> rows =
+                (List<BooksController.BookAvailabilityRow>) result.getModelAndView().getModel().get("rows");
+        return rows.stream().map(r -> r.book().id()).toList();
+    }
+}
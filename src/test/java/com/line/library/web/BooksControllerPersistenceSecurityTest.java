@@ -31,7 +31,10 @@ import com.line.library.library.LibraryRepository;
         // Avoid executing Postgres-specific schema.sql in embedded tests
         "spring.sql.init.mode=never",
         // Have Hibernate create tables from entities
-        "spring.jpa.hibernate.ddl-auto=create-drop"
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        // LISTEN/NOTIFY and the outbox horizon need PostgreSQL
+        "app.cache.notify.enabled=false",
+        "app.outbox.relay.enabled=false"
 })
 class BooksControllerPersistenceSecurityTest {
 
@@ -1,11 +1,18 @@
 package com.line.library.web;
 
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrlPattern;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -15,6 +22,7 @@ import java.util.Optional;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.data.domain.Page;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.context.annotation.Import;
 import org.springframework.test.web.servlet.MockMvc;
@@ -22,11 +30,21 @@ import org.springframework.http.MediaType;
 
 import com.line.library.book.Book;
 import com.line.library.book.BookRepository;
+import com.line.library.book.BookService;
 import com.line.library.book.BookType;
+import com.line.library.book.BookPageCache;
 import com.line.library.config.SecurityConfig;
+import com.line.library.copy.BookCopy;
 import com.line.library.copy.BookCopyRepository;
-import com.line.library.library.Library;
+import com.line.library.hold.HoldService;
 import com.line.library.library.LibraryRepository;
+import com.line.library.search.SearchBackend;
+import com.line.library.search.SearchQuery;
+import com.line.library.search.SearchResult;
+import com.line.library.search.SearchResultCache;
+import com.line.library.search.SpellingService;
+import com.line.library.sync.CatalogSync;
+import com.line.library.warmup.HotQueryRecorder;
 
 @WebMvcTest(controllers = BooksController.class)
 @Import(SecurityConfig.class)
@@ -36,8 +54,32 @@ class BooksControllerSecurityTest {
     MockMvc mockMvc;
 
     @MockitoBean BookRepository bookRepository;
+    @MockitoBean BookService bookService;
     @MockitoBean LibraryRepository libraryRepository;
     @MockitoBean BookCopyRepository copyRepository;
+    @MockitoBean SearchBackend searchBackend;
+    @MockitoBean SearchResultCache searchCache;
+    @MockitoBean BookPageCache bookPageCache;
+    @MockitoBean SpellingService spellingService;
+    @MockitoBean CatalogSync catalogSync;
+    @MockitoBean HotQueryRecorder hotQueryRecorder;
+    @MockitoBean CatalogETag catalogETag;
+    @MockitoBean BookRowRenderer rowRenderer;
+    @MockitoBean HoldService holdService;
+
+    // Two-character CJK names have a bigram, so they pass the server-side length guard and the form must allow them
+    @Test
+    void search_twoCharacterCjkQuery_isSearched() throws Exception {
+        when(searchCache.get(any(SearchQuery.class), anyInt(), anyInt(), any()))
+                .thenReturn(SearchResult.exact(Page.empty()));
+
+        mockMvc.perform(get("/books").param("q", "漱石").with(user("mem").roles("MEMBER")))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("searchTooShort", false))
+                .andExpect(content().string(not(containsString("minlength"))));
+
+        verify(searchCache).get(any(SearchQuery.class), eq(0), anyInt(), any());
+    }
 
     // GET /books/new
     @Test
@@ -89,7 +131,7 @@ class BooksControllerSecurityTest {
         saved.setTitle("T");
         saved.setAuthor("A");
         saved.setType(BookType.BOOK);
-        when(bookRepository.save(any(Book.class))).thenReturn(saved);
+        when(bookService.create(any(Book.class))).thenReturn(saved);
 
         mockMvc.perform(post("/books").contentType(MediaType.APPLICATION_FORM_URLENCODED)
                         .with(user("lib").roles("LIBRARIAN")).with(csrf())
@@ -158,8 +200,7 @@ class BooksControllerSecurityTest {
         existing.setTitle("T");
         existing.setAuthor("A");
         existing.setType(BookType.BOOK);
-        when(bookRepository.findById(1L)).thenReturn(Optional.of(existing));
-        when(bookRepository.save(any(Book.class))).thenReturn(existing);
+        when(bookService.update(eq(1L), any(Book.class))).thenReturn(existing);
 
         mockMvc.perform(post("/books/1").contentType(MediaType.APPLICATION_FORM_URLENCODED)
                         .with(user("lib").roles("LIBRARIAN")).with(csrf())
@@ -191,16 +232,9 @@ class BooksControllerSecurityTest {
 
     @Test
     void addCopy_redirects_whenLibrarian() throws Exception {
-        Book b = new Book();
-        b.setId(1L);
-        b.setTitle("T");
-        b.setAuthor("A");
-        b.setType(BookType.BOOK);
-        Library lib = new Library();
-        lib.setId(2L);
-        lib.setName("Main");
-        when(bookRepository.findById(1L)).thenReturn(Optional.of(b));
-        when(libraryRepository.findById(2L)).thenReturn(Optional.of(lib));
+        BookCopy savedCopy = new BookCopy();
+        savedCopy.setId(3L);
+        when(bookService.addCopy(1L, 2L, "A-1")).thenReturn(savedCopy);
 
         mockMvc.perform(post("/books/1/copies").contentType(MediaType.APPLICATION_FORM_URLENCODED)
                         .with(user("lib").roles("LIBRARIAN")).with(csrf())
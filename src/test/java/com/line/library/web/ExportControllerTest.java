@@ -0,0 +1,104 @@
+package com.line.library.web;
+
+import static com.line.library.testutil.TestDataFactory.persistCopy;
+import static com.line.library.testutil.TestDataFactory.persistLibrary;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.line.library.book.Book;
+import com.line.library.book.BookRepository;
+import com.line.library.book.BookType;
+import com.line.library.copy.BookCopyRepository;
+import com.line.library.library.Library;
+import com.line.library.library.LibraryRepository;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+@TestPropertySource(properties = {
+        // Avoid executing Postgres-specific schema.sql in embedded tests
+        "spring.sql.init.mode=never",
+        // Have Hibernate create tables from entities
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        // LISTEN/NOTIFY and the outbox horizon need PostgreSQL
+        "app.cache.notify.enabled=false",
+        "app.outbox.relay.enabled=false"
+})
+class ExportControllerTest {
+
+    @Autowired MockMvc mockMvc;
+    @Autowired BookRepository bookRepository;
+    @Autowired BookCopyRepository copyRepository;
+    @Autowired LibraryRepository libraryRepository;
+
+    private Book first;
+    private Library main;
+
+    @BeforeEach
+    void setUp() {
+        copyRepository.deleteAll();
+        bookRepository.deleteAll();
+        libraryRepository.deleteAll();
+        first = save("Dune", "Frank Herbert", 1965);
+        save("Tea, Coffee and \"Cake\"", "Anon", null);
+        main = persistLibrary(libraryRepository, "Main");
+        persistCopy(copyRepository, first, main);
+    }
+
+    @Test
+    void export_csv_quotesFieldsAndIncludesAvailability() throws Exception {
+        String body = mockMvc.perform(get("/books/export").param("availability", "true")
+                        .with(user("lib").roles("LIBRARIAN")))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(body.split("\n")).containsExactly(
+                "id,title,author,pub_year,type,available_Main",
+                first.getId() + ",Dune,Frank Herbert,1965,BOOK,1",
+                (first.getId() + 1) + ",\"Tea, Coffee and \"\"Cake\"\"\",Anon,,BOOK,0");
+    }
+
+    @Test
+    void export_jsonl_writesOneObjectPerLine() throws Exception {
+        String body = mockMvc.perform(get("/books/export").param("format", "JSONL")
+                        .with(user("lib").roles("LIBRARIAN")))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(body.split("\n")).hasSize(2);
+        assertThat(body).startsWith("{\"id\":" + first.getId() + ",\"title\":\"Dune\"");
+    }
+
+    @Test
+    void export_tooShortQuery_isRejected_notWidenedToCatalog() throws Exception {
+        mockMvc.perform(get("/books/export").param("q", "a")
+                        .with(user("lib").roles("LIBRARIAN")))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void export_forbidden_whenMember() throws Exception {
+        mockMvc.perform(get("/books/export").with(user("mem").roles("MEMBER")))
+                .andExpect(status().isForbidden());
+    }
+
+    private Book save(String title, String author, Integer year) {
+        Book b = new Book();
+        b.setTitle(title);
+        b.setAuthor(author);
+        b.setPubYear(year);
+        b.setType(BookType.BOOK);
+        return bookRepository.save(b);
+    }
+}